@@ -0,0 +1,173 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Criteria;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.ParcelFileDescriptor;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+import androidx.test.rule.ServiceTestRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives a real recording through the service, fed by a mock GPS provider,
+ * and fails if any of it touched the disk on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 28) // StrictMode violation listeners
+public class GPXTrackingServiceTest {
+
+    private static final long WAIT_MS = 15_000;
+    // Slower than the fastest sampling step, so no fix is throttled away
+    private static final long FIX_INTERVAL_MS = 2500;
+
+    @Rule
+    public final GrantPermissionRule permissions = GrantPermissionRule.grant(
+            Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION);
+
+    @Rule
+    public final ServiceTestRule serviceRule = new ServiceTestRule();
+
+    private final List<Violation> violations = new CopyOnWriteArrayList<>();
+    private Context context;
+    private LocationManager locationManager;
+    private StrictMode.ThreadPolicy previousPolicy;
+    private List<File> tracksBefore;
+    private double latitude = 46.5;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+        shell("appops set " + context.getPackageName() + " android:mock_location allow");
+        locationManager.addTestProvider(LocationManager.GPS_PROVIDER, false, false, false, false,
+                true, true, true, Criteria.POWER_HIGH, Criteria.ACCURACY_FINE);
+        locationManager.setTestProviderEnabled(LocationManager.GPS_PROVIDER, true);
+        tracksBefore = listTracks();
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            if (previousPolicy != null) StrictMode.setThreadPolicy(previousPolicy);
+        });
+        locationManager.removeTestProvider(LocationManager.GPS_PROVIDER);
+        for (File file : listTracks()) {
+            if (!tracksBefore.contains(file)) {
+                file.delete();
+                TrackSidecar.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void recordsWithoutDiskAccessOnTheMainThread() throws Exception {
+        GPXTrackingService service = ((GPXTrackingService.GPXTrackingBinder) serviceRule.bindService(
+                new Intent(context, GPXTrackingService.class))).getService();
+        watchMainThread();
+
+        context.startForegroundService(command("START_TRACKING")
+                .putExtra("track_name", "Instrumented walk"));
+        waitFor("tracking", service::isTracking);
+
+        for (int i = 0; i < 3; i++) sendFix();
+        waitFor("stored fixes", () -> service.getCurrentTrackPoints().size() > 0);
+
+        context.startService(command("PAUSE_TRACKING"));
+        waitFor("paused", () -> !service.isTracking());
+        int stored = service.getCurrentTrackPoints().size();
+        sendFix();
+        SystemClock.sleep(FIX_INTERVAL_MS);
+        assertEquals(stored, service.getCurrentTrackPoints().size());
+
+        context.startService(command("STOP_TRACKING"));
+        // The journal goes once the GPX file is written
+        waitFor("saved track", () -> !new File(context.getFilesDir(), "active_track.journal").exists());
+        assertEquals(tracksBefore.size() + 1, listTracks().size());
+        assertFalse(service.isTracking());
+
+        if (!violations.isEmpty()) {
+            throw new AssertionError(violations.size() + " disk accesses on the main thread", violations.get(0));
+        }
+    }
+
+    // Replaces the app's debug policy for the test: violations are collected instead of killing the process
+    private void watchMainThread() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, violations::add)
+                    .build());
+        });
+    }
+
+    private Intent command(String action) {
+        return new Intent(context, GPXTrackingService.class).setAction(action);
+    }
+
+    // Walks north about 20 m per fix
+    private void sendFix() {
+        Location location = new Location(LocationManager.GPS_PROVIDER);
+        location.setLatitude(latitude);
+        location.setLongitude(7.9);
+        location.setAltitude(1500);
+        location.setAccuracy(5);
+        location.setTime(System.currentTimeMillis());
+        location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+        locationManager.setTestProviderLocation(LocationManager.GPS_PROVIDER, location);
+        latitude += 20 / 111_195.0;
+        SystemClock.sleep(FIX_INTERVAL_MS);
+    }
+
+    private List<File> listTracks() {
+        File[] files = new File(context.getExternalFilesDir(null), "GPXTracks")
+                .listFiles((dir, name) -> name.endsWith(".gpx"));
+        return files != null ? Arrays.asList(files) : new ArrayList<>();
+    }
+
+    private static void waitFor(String what, BooleanSupplier condition) throws TimeoutException {
+        long deadline = SystemClock.uptimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            if (SystemClock.uptimeMillis() > deadline) throw new TimeoutException("No " + what);
+            SystemClock.sleep(50);
+        }
+    }
+
+    private static void shell(String command) throws IOException {
+        ParcelFileDescriptor output = InstrumentationRegistry.getInstrumentation()
+                .getUiAutomation().executeShellCommand(command);
+        // Reading to the end waits for the command to finish
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(output)) {
+            while (in.read() != -1) { }
+        }
+    }
+}
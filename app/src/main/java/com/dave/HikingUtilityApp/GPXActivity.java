@@ -17,7 +17,6 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import java.io.InputStream;
 import java.text.DecimalFormat;
 public class GPXActivity extends AppCompatActivity implements LocationHelper.LocationUpdateListener {
 
@@ -31,7 +30,8 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
 
     private LocationHelper locationHelper;
     private GPXManager gpxManager;
-    private GPXManager.GPXTrack loadedTrack;
+    private GPXTrack loadedTrack;
+    private TrackStats loadedStats; // computed once during import
     private final DecimalFormat distanceFormat = new DecimalFormat("#.##");
 
     private static final int REQUEST_CODE_PICK_FILE = 1001;
@@ -42,6 +42,9 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
     private final Handler updateHandler = new Handler();
     private Runnable updateRunnable;
 
+    private TrackImporter trackImporter;
+    private TrackImporter.Task importTask;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -66,6 +69,7 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
     private void initServices() {
         locationHelper = new LocationHelper(this, this);
         gpxManager = new GPXManager(this);
+        trackImporter = new TrackImporter(this);
         locationHelper.startLocationUpdates();
 
         // Bind to tracking service
@@ -183,23 +187,31 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
     }
 
     private void saveCurrentTrack() {
-        GPXManager.GPXTrack currentTrack = gpxManager.getCurrentTrack();
+        GPXTrack currentTrack = gpxManager.getCurrentTrack();
 
         if (currentTrack.points.isEmpty()) {
             Toast.makeText(this, "No track points to save", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        try {
-            java.io.File savedFile = gpxManager.saveTrackToFile(currentTrack);
-            Toast.makeText(this, "Track saved: " + savedFile.getName(), Toast.LENGTH_LONG).show();
+        // Writing the GPX, sidecar and index entries goes to the import thread; not cancelled
+        // with the activity, so a rotation doesn't lose the save
+        trackImporter.saveTrack(currentTrack, new TrackImporter.Callback() {
+            @Override
+            public void onComplete(TrackImporter.Result result) {
+                if (isDestroyed()) return;
+                Toast.makeText(GPXActivity.this, "Track saved: " + result.savedFile.getName(), Toast.LENGTH_LONG).show();
 
-            // Share the saved file
-            shareGPXFile(savedFile);
+                // Share the saved file
+                shareGPXFile(result.savedFile);
+            }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Error saving track: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                if (isDestroyed()) return;
+                Toast.makeText(GPXActivity.this, "Error saving track: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     private void shareGPXFile(java.io.File gpxFile) {
@@ -213,27 +225,42 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
     }
 
     private void importGPXFile(Uri uri) {
-        try {
-            InputStream inputStream = getContentResolver().openInputStream(uri);
-            loadedTrack = gpxManager.importGPXFromUri(inputStream);
-            inputStream.close();
+        if (importTask != null) importTask.cancel();
 
-            updateUI();
+        importTask = trackImporter.importUri(uri, false, new TrackImporter.Callback() {
+            @Override
+            public void onProgress(TrackImporter.Stage stage, int percent) {
+                tvTrackStats.setText(stage == TrackImporter.Stage.PARSE
+                        ? "Importing GPX... " + percent + "%"
+                        : "Importing GPX...");
+            }
+
+            @Override
+            public void onComplete(TrackImporter.Result result) {
+                importTask = null;
+                loadedTrack = result.track;
+                loadedStats = result.stats;
+                updateUI();
 
-            String message = String.format("GPX imported: %s\n%d points, %.2f m",
-                    loadedTrack.name,
-                    loadedTrack.points.size(),
-                    loadedTrack.getTotalDistance() / 0.621371);
+                String message = String.format("GPX imported: %s\n%d points, %.2f m",
+                        loadedTrack.name,
+                        loadedTrack.points.size(),
+                        result.stats.getTotalDistance() / 0.621371);
 
-            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+                Toast.makeText(GPXActivity.this, message, Toast.LENGTH_LONG).show();
+            }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Error importing GPX: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                importTask = null;
+                updateUI();
+                Toast.makeText(GPXActivity.this, "Error importing GPX: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     private void viewTrackOnMap() {
-        GPXManager.GPXTrack trackToView = null;
+        GPXTrack trackToView = null;
 
         if (loadedTrack != null && !loadedTrack.points.isEmpty()) {
             trackToView = loadedTrack;
@@ -246,24 +273,11 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
             return;
         }
 
-        // Pass track data to MapActivity
+        // Pass the track by reference; MapActivity draws every point
         Intent intent = new Intent(this, MapActivity.class);
         intent.putExtra("show_gpx_track", true);
         intent.putExtra("track_name", trackToView.name);
-
-        // Pass first few points (limitation of Intent size)
-        int maxPoints = Math.min(trackToView.points.size(), 100);
-        double[] lats = new double[maxPoints];
-        double[] lons = new double[maxPoints];
-
-        for (int i = 0; i < maxPoints; i++) {
-            GPXManager.GPXPoint point = trackToView.points.get(i);
-            lats[i] = point.latitude;
-            lons[i] = point.longitude;
-        }
-
-        intent.putExtra("track_lats", lats);
-        intent.putExtra("track_lons", lons);
+        intent.putExtra(TrackRegistry.EXTRA_TRACK_ID, TrackRegistry.put(trackToView));
 
         startActivity(intent);
     }
@@ -315,26 +329,32 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
         }
 
         // Show stats for current track or loaded track
-        GPXManager.GPXTrack displayTrack = null;
+        String displayName = null;
+        int pointCount = 0;
+        double distance = 0;
+        long duration = 0;
 
         if (isTracking && trackingService != null) {
-            // Create temporary track from service data
-            displayTrack = new GPXManager.GPXTrack(trackingService.getTrackName());
-            displayTrack.points.addAll(trackingService.getCurrentTrackPoints());
+            // Read straight from the service; its snapshot and totals cost nothing to fetch
+            displayName = trackingService.getTrackName();
+            pointCount = trackingService.getCurrentTrackPoints().size();
+            distance = trackingService.calculateTotalDistance();
+            duration = trackingService.getTrackingDuration();
         } else if (loadedTrack != null) {
-            displayTrack = loadedTrack;
+            displayName = loadedTrack.name;
+            pointCount = loadedTrack.points.size();
+            distance = loadedStats.getTotalDistance();
+            duration = loadedStats.getDuration();
         }
 
-        if (displayTrack != null && !displayTrack.points.isEmpty()) {
-            double distance = displayTrack.getTotalDistance();
-            long duration = isTracking
-                    ? trackingService.getTrackingDuration()
-                    : displayTrack.getDuration();
+        // Progress callbacks own the stats line until the import finishes
+        if (importTask != null) return;
 
+        if (pointCount > 0) {
             String stats = String.format(
                     "Track: %s\nPoints: %d\nDistance: %.2f m\nDuration: %s",
-                    displayTrack.name,
-                    displayTrack.points.size(),
+                    displayName,
+                    pointCount,
                     distance / 1609.34,
                     formatDuration(duration)
             );
@@ -400,6 +420,8 @@ public class GPXActivity extends AppCompatActivity implements LocationHelper.Loc
             locationHelper.stopLocationUpdates();
         }
 
+        if (importTask != null) importTask.cancel();
+
         // Stop periodic updates
         if (updateHandler != null && updateRunnable != null) {
             updateHandler.removeCallbacks(updateRunnable);
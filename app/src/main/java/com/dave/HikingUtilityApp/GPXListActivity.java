@@ -2,49 +2,77 @@ package com.dave.HikingUtilityApp;
 
 import android.app.AlertDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.StrictMode;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.FileProvider;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class GPXListActivity extends AppCompatActivity {
 
-    private ListView listGPXTracks;
+    private RecyclerView listGPXTracks;
     private Button btnImportGPX, btnImportOSM;
     private TextView tvTrackCount;
     private List<GPXTrackItem> gpxTracks;
     private GPXListAdapter adapter;
     private static final int REQUEST_CODE_PICK_FILE = 1001;
-    private File appGPXFolder;
+    private TrackImporter trackImporter;
+    private TrackIndex trackIndex;
+    private Set<String> shownTrackPaths; // read once instead of per row
 
+    // Immutable row state; rebuilt only when its index entry or active flag changes
     public static class GPXTrackItem {
-        public File gpxFile;
-        public String name, details;
-        public GPXManager.GPXTrack track;
+        public final File gpxFile;
+        public final String name;
+        public final TrackIndex.Entry entry;
+        public final boolean active;
+        private String details;
+
+        public GPXTrackItem(TrackIndex.Entry entry, boolean active) {
+            this.gpxFile = entry.file;
+            this.name = entry.name;
+            this.entry = entry;
+            this.active = active;
+        }
 
-        public GPXTrackItem(File file) {
-            this.gpxFile = file;
-            this.name = file.getName().replace(".gpx", "");
-            this.details = String.format("%d KB", file.length() / 1024);
+        public String getDetails() {
+            if (details == null) {
+                if (!entry.hasStats() && !entry.isUnreadable()) {
+                    details = "Loading stats...";
+                } else if (entry.pointCount > 0) {
+                    long minutes = entry.duration / 60000;
+                    details = String.format(Locale.US, "%.2f mi  •  %dh %02dm  •  %.0f ft gain  •  %d points",
+                            entry.distance * TrackStats.METERS_TO_MILES, minutes / 60, minutes % 60,
+                            entry.elevationGain * 3.28084, entry.pointCount);
+                } else {
+                    details = String.format(Locale.US, "%d KB", entry.length / 1024);
+                }
+            }
+            return details;
         }
     }
 
@@ -53,15 +81,29 @@ public class GPXListActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_gpx_list);
 
-        initAppFolder();
+        trackImporter = new TrackImporter(this);
+        trackIndex = TrackIndex.get(this);
+        shownTrackPaths = ShownTracks.get(this);
         initViews();
         setupClickListeners();
         loadGPXFiles();
 
+        // Pick up files added or removed outside the app
+        trackIndex.refreshAsync(() -> {
+            if (!isDestroyed()) loadGPXFiles();
+        });
+
         // Handle GPX from other apps
         handleIncomingIntent(getIntent());
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A rotation lets running imports finish and persist; the list shows them on its next load
+        if (isFinishing()) trackImporter.cancelAll();
+    }
+
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
@@ -86,11 +128,6 @@ public class GPXListActivity extends AppCompatActivity {
         }
     }
 
-    private void initAppFolder() {
-        appGPXFolder = new File(getExternalFilesDir(null), "GPXTracks");
-        if (!appGPXFolder.exists()) appGPXFolder.mkdirs();
-    }
-
     private void initViews() {
         listGPXTracks = findViewById(R.id.list_gpx_tracks);
         btnImportGPX = findViewById(R.id.btn_import_gpx);
@@ -98,6 +135,8 @@ public class GPXListActivity extends AppCompatActivity {
         tvTrackCount = findViewById(R.id.tv_track_count);
         gpxTracks = new ArrayList<>();
         adapter = new GPXListAdapter();
+        listGPXTracks.setLayoutManager(new LinearLayoutManager(this));
+        listGPXTracks.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
         listGPXTracks.setAdapter(adapter);
     }
 
@@ -122,35 +161,24 @@ public class GPXListActivity extends AppCompatActivity {
     }
 
     private void downloadOSMTrace(String traceId) {
-        new Thread(() -> {
-            try {
-                GPXManager gpxManager = new GPXManager(this);
-                GPXManager.GPXTrack track = gpxManager.importGPXFromUri(
-                        new java.net.URL("https://www.openstreetmap.org/traces/" + traceId + "/data").openStream()
-                );
-                gpxManager.saveTrackToFile(track);
-                runOnUiThread(this::loadGPXFiles);
-            } catch (Exception e) {
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show());
-            }
-        }).start();
+        startImport(() -> new java.net.URL("https://www.openstreetmap.org/traces/" + traceId + "/data").openStream());
     }
 
     private void loadGPXFiles() {
-        gpxTracks.clear();
-        File[] files = appGPXFolder.listFiles((dir, name) -> name.toLowerCase().endsWith(".gpx"));
-        if (files != null) {
-            Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
-            List<String> seenNames = new ArrayList<>();
-            for (File file : files) {
-                String trackName = file.getName().replace(".gpx", "");
-                if (!seenNames.contains(trackName)) {
-                    gpxTracks.add(new GPXTrackItem(file));
-                    seenNames.add(trackName);
-                }
-            }
+        Map<String, GPXTrackItem> previous = new HashMap<>();
+        for (GPXTrackItem item : gpxTracks) previous.put(item.gpxFile.getName(), item);
+
+        List<GPXTrackItem> items = new ArrayList<>();
+        for (TrackIndex.Entry entry : trackIndex.getEntries()) {
+            boolean active = shownTrackPaths.contains(entry.file.getAbsolutePath());
+            GPXTrackItem item = previous.get(entry.file.getName());
+            if (item == null || item.entry != entry || item.active != active) item = new GPXTrackItem(entry, active);
+            items.add(item);
         }
-        adapter.notifyDataSetChanged();
+
+        // DiffUtil works out the changed rows; unchanged items are the same objects
+        gpxTracks = items;
+        adapter.submitList(items);
         tvTrackCount.setText(String.format(Locale.US, "%d GPX tracks found", gpxTracks.size()));
     }
 
@@ -172,30 +200,59 @@ public class GPXListActivity extends AppCompatActivity {
     }
 
     private void importGPXFile(Uri uri) {
-        try {
-            GPXManager gpxManager = new GPXManager(this);
-            GPXManager.GPXTrack track = gpxManager.importGPXFromUri(getContentResolver().openInputStream(uri));
-            if (track.points.isEmpty()) {
-                Toast.makeText(this, "No points found", Toast.LENGTH_LONG).show();
-                return;
-            }
-            gpxManager.saveTrackToFile(track); // no duplicates
+        trackImporter.importUri(uri, true, importCallback);
+    }
+
+    private void startImport(TrackImporter.Source source) {
+        trackImporter.importTrack(source, true, importCallback);
+    }
+
+    private final TrackImporter.Callback importCallback = new TrackImporter.Callback() {
+        @Override
+        public void onProgress(TrackImporter.Stage stage, int percent) {
+            if (isDestroyed()) return;
+            tvTrackCount.setText(stage == TrackImporter.Stage.PARSE
+                    ? String.format(Locale.US, "Importing... %d%%", percent)
+                    : "Importing...");
+        }
+
+        @Override
+        public void onComplete(TrackImporter.Result result) {
+            if (isDestroyed()) return;
+            if (result.track.points.isEmpty())
+                Toast.makeText(GPXListActivity.this, "No points found", Toast.LENGTH_LONG).show();
+            loadGPXFiles(); // no duplicates
+        }
+
+        @Override
+        public void onError(Exception e) {
+            if (isDestroyed()) return;
             loadGPXFiles();
-        } catch (Exception e) {
-            Toast.makeText(this, "Error importing: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Toast.makeText(GPXListActivity.this, "Error importing: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
-    }
+    };
 
     private void deleteTrack(GPXTrackItem item) {
-        if (item.gpxFile.delete()) {
-            gpxTracks.remove(item);
-            adapter.notifyDataSetChanged();
-        } else Toast.makeText(this, "Failed to delete track", Toast.LENGTH_SHORT).show();
+        trackImporter.deleteTrack(item.gpxFile, deleted -> {
+            if (isDestroyed()) return;
+            if (deleted) {
+                ShownTracks.set(this, item.gpxFile, false);
+                shownTrackPaths.remove(item.gpxFile.getAbsolutePath());
+                loadGPXFiles();
+            } else Toast.makeText(this, "Failed to delete track", Toast.LENGTH_SHORT).show();
+        });
     }
 
     private void shareTrack(GPXTrackItem item) {
         try {
-            Uri fileUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", item.gpxFile);
+            // FileProvider resolves canonical paths on the disk and has no asynchronous form
+            Uri fileUri;
+            StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskReads();
+            try {
+                fileUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", item.gpxFile);
+            } finally {
+                StrictMode.setThreadPolicy(policy);
+            }
             Intent shareIntent = new Intent(Intent.ACTION_SEND);
             shareIntent.setType("application/gpx+xml");
             shareIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
@@ -208,45 +265,68 @@ public class GPXListActivity extends AppCompatActivity {
     }
 
     private void setActiveTrack(GPXTrackItem item, boolean showOnMap) {
-        SharedPreferences prefs = getSharedPreferences("GPX_PREFS", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        if (showOnMap) editor.putString("ACTIVE_TRACK", item.gpxFile.getAbsolutePath());
-        else editor.remove("ACTIVE_TRACK");
-        editor.apply();
+        ShownTracks.set(this, item.gpxFile, showOnMap);
+        shownTrackPaths = ShownTracks.get(this);
+        loadGPXFiles();
         Toast.makeText(this, showOnMap ? "Track showing on map" : "Track removed from map", Toast.LENGTH_SHORT).show();
     }
 
-    private class GPXListAdapter extends BaseAdapter {
-        @Override public int getCount() { return gpxTracks.size(); }
-        @Override public Object getItem(int pos) { return gpxTracks.get(pos); }
-        @Override public long getItemId(int pos) { return pos; }
-
+    private static final DiffUtil.ItemCallback<GPXTrackItem> DIFF = new DiffUtil.ItemCallback<GPXTrackItem>() {
         @Override
-        public View getView(int pos, View convertView, ViewGroup parent) {
-            if (convertView == null)
-                convertView = LayoutInflater.from(GPXListActivity.this)
-                        .inflate(R.layout.item_gpx_track, parent, false);
+        public boolean areItemsTheSame(@NonNull GPXTrackItem oldItem, @NonNull GPXTrackItem newItem) {
+            return oldItem.gpxFile.equals(newItem.gpxFile);
+        }
 
-            GPXTrackItem item = gpxTracks.get(pos);
+        @Override
+        public boolean areContentsTheSame(@NonNull GPXTrackItem oldItem, @NonNull GPXTrackItem newItem) {
+            return oldItem.entry == newItem.entry && oldItem.active == newItem.active;
+        }
+    };
 
-            TextView tvName = convertView.findViewById(R.id.tv_track_name);
-            Switch switchShow = convertView.findViewById(R.id.switch_show_on_map);
-            Button btnShare = convertView.findViewById(R.id.btn_share_track);
-            Button btnDelete = convertView.findViewById(R.id.btn_delete_track);
+    private class GPXListAdapter extends ListAdapter<GPXTrackItem, TrackViewHolder> {
+        GPXListAdapter() {
+            super(DIFF);
+        }
 
-            tvName.setText(item.name);
+        @NonNull
+        @Override
+        public TrackViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new TrackViewHolder(LayoutInflater.from(GPXListActivity.this)
+                    .inflate(R.layout.item_gpx_track, parent, false));
+        }
 
-            // Set switch state from preferences
-            SharedPreferences prefs = getSharedPreferences("GPX_PREFS", MODE_PRIVATE);
-            String activePath = prefs.getString("ACTIVE_TRACK", "");
-            switchShow.setChecked(activePath.equals(item.gpxFile.getAbsolutePath()));
-            switchShow.setVisibility(View.VISIBLE);
+        @Override
+        public void onBindViewHolder(@NonNull TrackViewHolder holder, int pos) {
+            holder.bind(getItem(pos));
+        }
+    }
 
-            switchShow.setOnCheckedChangeListener((buttonView, isChecked) -> setActiveTrack(item, isChecked));
+    // Views are looked up and listeners attached once per holder, not per bind
+    private class TrackViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName;
+        final TextView tvDetails;
+        final Switch switchShow;
+        GPXTrackItem item;
+
+        TrackViewHolder(View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tv_track_name);
+            tvDetails = itemView.findViewById(R.id.tv_track_details);
+            switchShow = itemView.findViewById(R.id.switch_show_on_map);
+            Button btnShare = itemView.findViewById(R.id.btn_share_track);
+            Button btnDelete = itemView.findViewById(R.id.btn_delete_track);
+
+            // Click rather than checked-change, so binding a recycled row can't fire it
+            switchShow.setOnClickListener(v -> setActiveTrack(item, switchShow.isChecked()));
             btnShare.setOnClickListener(v -> shareTrack(item));
             btnDelete.setOnClickListener(v -> deleteTrack(item));
+        }
 
-            return convertView;
+        void bind(GPXTrackItem item) {
+            this.item = item;
+            tvName.setText(item.name);
+            tvDetails.setText(item.getDetails());
+            switchShow.setChecked(item.active);
         }
     }
 }
\ No newline at end of file
@@ -3,189 +3,64 @@ package com.dave.HikingUtilityApp;
 import android.content.Context;
 import android.location.Location;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class GPXManager {
 
     private final Context context;
-    private final List<GPXPoint> currentTrack;
+    private final TrackBuffer currentTrack;
     private boolean isTracking = false;
     private String currentTrackName;
 
-    public static class GPXPoint {
-        public double latitude;
-        public double longitude;
-        public double elevation;
-        public long timestamp;
-        public String name;
-        public String description;
-        public double altitude;
-
-        public GPXPoint(double lat, double lon) {
-            this.latitude = lat;
-            this.longitude = lon;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        public GPXPoint(double lat, double lon, double elevation) {
-            this(lat, lon);
-            this.elevation = elevation;
-        }
-
-        public Location toLocation() {
-            Location location = new Location("GPXPoint");
-            location.setLatitude(latitude);
-            location.setLongitude(longitude);
-            location.setAltitude(elevation);
-            location.setTime(timestamp);
-            return location;
-        }
-        public GPXPoint(Location location) {
-            this.latitude = location.getLatitude();
-            this.longitude = location.getLongitude();
-            this.timestamp = location.getTime();
-            if (location.hasAltitude()) {
-                this.elevation = location.getAltitude();
-            }
-        }
+    // Location Adapters (GPXPoint itself lives in :core, which has no Android dependency)
+    public static Location toLocation(GPXPoint point) {
+        Location location = new Location("GPXPoint");
+        location.setLatitude(point.latitude);
+        location.setLongitude(point.longitude);
+        location.setAltitude(point.elevation);
+        location.setTime(point.timestamp);
+        return location;
     }
 
-    public static class GPXTrack {
-        public String name;
-        public List<GPXPoint> points;
-        public String description;
-        public Date createdDate;
-
-        public GPXTrack(String name) {
-            this.name = name;
-            this.points = new ArrayList<>();
-            this.createdDate = new Date();
-        }
-
-        public double getTotalDistance() {
-            if (points.size() < 2) return 0;
-
-            double total = 0;
-            for (int i = 1; i < points.size(); i++) {
-                GPXPoint p1 = points.get(i - 1);
-                GPXPoint p2 = points.get(i);
-                total += LocationHelper.calculateDistance(p1.latitude, p1.longitude, p2.latitude, p2.longitude);
-            }
-            return total;
-        }
-
-        public long getDuration() {
-            if (points.size() < 2) return 0;
-            return points.get(points.size() - 1).timestamp - points.get(0).timestamp;
+    public static GPXPoint fromLocation(Location location) {
+        GPXPoint point = new GPXPoint(location.getLatitude(), location.getLongitude());
+        point.timestamp = location.getTime();
+        if (location.hasAltitude()) {
+            point.elevation = location.getAltitude();
         }
+        return point;
     }
 
     public GPXManager(Context context) {
         this.context = context;
-        this.currentTrack = new ArrayList<>();
+        this.currentTrack = new TrackBuffer();
     }
 
     // GPX Import Methods
     public GPXTrack importGPXFromUri(InputStream inputStream) throws Exception {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        StringBuilder content = new StringBuilder();
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            content.append(line).append("\n");
+        HikingApplication.checkNotMainThread("GPX import");
+        try (GPXReader reader = new GPXReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return reader.readTrack(System.currentTimeMillis());
         }
-        reader.close();
-
-        return parseGPXContent(content.toString());
     }
 
     public GPXTrack importGPXFromFile(String filePath) throws Exception {
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        StringBuilder content = new StringBuilder();
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            content.append(line).append("\n");
-        }
-        reader.close();
-
-        return parseGPXContent(content.toString());
-    }
-
-    private GPXTrack parseGPXContent(String content) {
-        GPXTrack track = new GPXTrack("Imported Track");
-
-        // Simple regex parsing (works with most GPX files)
-        Pattern trackNamePattern = Pattern.compile("<name>(.*?)</name>");
-        Pattern trkptPattern = Pattern.compile("<trkpt lat=\"([^\"]+)\" lon=\"([^\"]+)\"");
-        Pattern elePattern = Pattern.compile("<ele>([^<]+)</ele>");
-        Pattern timePattern = Pattern.compile("<time>([^<]+)</time>");
-
-        // Extract track name
-        Matcher nameMatcher = trackNamePattern.matcher(content);
-        if (nameMatcher.find()) {
-            track.name = nameMatcher.group(1);
-        }
-
-        // Extract track points
-        Matcher trkptMatcher = trkptPattern.matcher(content);
-        String[] lines = content.split("\n");
-
-        int lineIndex = 0;
-        while (trkptMatcher.find()) {
-            double lat = Double.parseDouble(trkptMatcher.group(1));
-            double lon = Double.parseDouble(trkptMatcher.group(2));
-
-            GPXPoint point = new GPXPoint(lat, lon);
-
-            // Look for elevation and time in nearby lines
-            int start = Math.max(0, lineIndex - 5);
-            int end = Math.min(lines.length, lineIndex + 10);
-
-            for (int i = start; i < end; i++) {
-                // Extract elevation
-                Matcher eleMatcher = elePattern.matcher(lines[i]);
-                if (eleMatcher.find()) {
-                    try {
-                        point.elevation = Double.parseDouble(eleMatcher.group(1));
-                    } catch (NumberFormatException e) {
-                        // Ignore invalid elevation
-                    }
-                }
-
-                // Extract time
-                Matcher timeMatcher = timePattern.matcher(lines[i]);
-                if (timeMatcher.find()) {
-                    try {
-                        // Simple timestamp parsing
-                        point.timestamp = System.currentTimeMillis(); // Fallback to current time
-                    } catch (Exception e) {
-                        // Use current time if parsing fails
-                    }
-                }
-            }
-
-            track.points.add(point);
-            lineIndex++;
+        HikingApplication.checkNotMainThread("GPX import");
+        try (GPXReader reader = new GPXReader(new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8))) {
+            return reader.readTrack(System.currentTimeMillis());
         }
-
-        // Also try to extract waypoints as single points
-
-
-        return track;
     }
 
     // GPX Tracking Methods
@@ -201,7 +76,8 @@ public class GPXManager {
 
     public void addTrackPoint(Location location) {
         if (isTracking) {
-            currentTrack.add(new GPXPoint(location));
+            currentTrack.append(location.getLatitude(), location.getLongitude(),
+                    location.hasAltitude() ? location.getAltitude() : 0, location.getTime());
         }
     }
 
@@ -221,71 +97,108 @@ public class GPXManager {
 
     // GPX Export Methods
     public String exportTrackToGPX(GPXTrack track) {
-        StringBuilder gpx = new StringBuilder();
-        SimpleDateFormat iso8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-
-        // GPX Header
-        gpx.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        gpx.append("<gpx version=\"1.1\" creator=\"HikingUtilityApp\"\n");
-        gpx.append(" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+        StringWriter gpx = new StringWriter();
+        try {
+            new GPXWriter(gpx).writeTrack(track);
+        } catch (IOException e) {
+            // StringWriter never throws
+        }
+        return gpx.toString();
+    }
 
-        // Metadata
-        gpx.append(" <metadata>\n");
-        gpx.append(" <name>").append(track.name).append("</name>\n");
-        gpx.append(" <time>").append(iso8601.format(track.createdDate)).append("</time>\n");
-        gpx.append(" </metadata>\n");
+    public File saveTrackToFile(GPXTrack track) throws Exception {
+        HikingApplication.checkNotMainThread("GPX save");
+        File gpxFile = getTrackFile(track.name);
 
-        // Track
-        gpx.append(" <trk>\n");
-        gpx.append(" <name>").append(track.name).append("</name>\n");
-        if (track.description != null) {
-            gpx.append(" <desc>").append(track.description).append("</desc>\n");
+        // Points are encoded straight into the file instead of building the document first
+        try (GPXWriter writer = openWriter(gpxFile)) {
+            writer.writeTrack(track);
         }
-        gpx.append(" <trkseg>\n");
+        TrackStats stats = TrackStats.of(track.points);
+        writeSidecar(gpxFile, track, stats);
+        TrackIndex.get(context).put(gpxFile, stats);
+        TrackSpatialIndex.get(context).put(gpxFile, track.points);
+        return gpxFile;
 
-        // Track Points
-        for (GPXPoint point : track.points) {
-            gpx.append(" <trkpt lat=\"").append(point.latitude)
-                    .append("\" lon=\"").append(point.longitude).append("\">\n");
+    }
 
-            if (point.elevation != 0) {
-                gpx.append(" <ele>").append(point.elevation).append("</ele>\n");
+    // Finalizes a recorded journal into a GPX file, its sidecar and its index entries in one
+    // pass over the journal. Named from the journal's own header, so a journal recovered after a crash keeps its
+    // name and start time, and never replaces an existing file.
+    public File saveJournalToFile(TrackJournal journal) throws Exception {
+        HikingApplication.checkNotMainThread("GPX save");
+        String name = journal.getTrackName();
+        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yy-HH-mm-ss", Locale.US);
+        File gpxFile = getNewTrackFile(name + "_" + sdf.format(new Date(journal.getStartTime())));
+
+        // Closing the sidecar unfinished deletes it. The points are only kept to simplify
+        // the track's map shape once they are all in.
+        TrackStats stats = new TrackStats();
+        TrackBuffer points = new TrackBuffer(journal.size());
+        try (TrackSidecar.Writer sidecar = new TrackSidecar.Writer(gpxFile, name, null, journal.getStartTime())) {
+            try (GPXWriter writer = openWriter(gpxFile)) {
+                writer.beginTrack(name, null, journal.getStartTime());
+                journal.replay((latitude, longitude, elevation, timestamp) -> {
+                    writer.writePoint(latitude, longitude, elevation, timestamp);
+                    sidecar.writePoint(latitude, longitude, elevation, timestamp);
+                    stats.add(latitude, longitude, elevation, timestamp);
+                    points.append(latitude, longitude, elevation, timestamp);
+                });
+                writer.endTrack();
             }
-
-            gpx.append(" <time>").append(iso8601.format(new Date(point.timestamp))).append("</time>\n");
-            gpx.append(" </trkpt>\n");
+            finishSidecar(gpxFile, sidecar, stats);
         }
-
-        // Close tags
-        gpx.append(" </trkseg>\n");
-        gpx.append(" </trk>\n");
-        gpx.append("</gpx>\n");
-
-        return gpx.toString();
+        TrackIndex.get(context).put(gpxFile, stats);
+        TrackSpatialIndex.get(context).put(gpxFile, points);
+        return gpxFile;
     }
 
-    public File saveTrackToFile(GPXTrack track) throws Exception {
-        String gpxContent = exportTrackToGPX(track);
-
+    private File getTrackFile(String name) {
         File appFolder = new File(context.getExternalFilesDir(null), "GPXTracks");
         if (!appFolder.exists())
             appFolder.mkdirs();
 
-        String safeName = track.name.replaceAll("a-zA-Z0-9_-]", "_");
-        File gpxFile = new File(appFolder, safeName + ".gpx");
-
-        try (FileOutputStream fos = new FileOutputStream(gpxFile)) {
+        String safeName = name.replaceAll("a-zA-Z0-9_-]", "_");
+        return new File(appFolder, safeName + ".gpx");
+    }
 
-            fos.write(gpxContent.getBytes(StandardCharsets.UTF_8));
+    // Like getTrackFile, but numbered "-2", "-3"... instead of overwriting a file already there
+    private File getNewTrackFile(String name) {
+        String safeName = name.replaceAll("[\\\\/:*?\"<>|]", "_");
+        File gpxFile = getTrackFile(safeName);
+        for (int n = 2; gpxFile.exists(); n++) {
+            gpxFile = getTrackFile(safeName + "-" + n);
         }
         return gpxFile;
+    }
+
+    // The sidecar only speeds up reopening; without it the GPX is parsed instead
+    static void writeSidecar(File gpxFile, GPXTrack track, TrackStats stats) {
+        try {
+            TrackSidecar.write(gpxFile, track, stats);
+        } catch (IOException e) {
+            TrackSidecar.delete(gpxFile);
+        }
+    }
+
+    // The GPX file is complete by now, so a failed sidecar mustn't fail the save
+    private static void finishSidecar(File gpxFile, TrackSidecar.Writer sidecar, TrackStats stats) {
+        try {
+            sidecar.finish(stats);
+        } catch (IOException e) {
+            TrackSidecar.delete(gpxFile);
+        }
+    }
 
+    private static GPXWriter openWriter(File gpxFile) throws IOException {
+        return new GPXWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(gpxFile), StandardCharsets.UTF_8)));
     }
 
 
 
-    public List<GPXPoint> getTrackPoints() {
-        return new ArrayList<>(currentTrack);
+    public TrackView getTrackPoints() {
+        return currentTrack;
     }
 
 }
\ No newline at end of file
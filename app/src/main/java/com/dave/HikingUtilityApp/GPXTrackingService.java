@@ -1,45 +1,64 @@
 package com.dave.HikingUtilityApp;
 
 import android.Manifest;
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Binder;
-import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 
-import androidx.core.app.ActivityCompat;
-import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
 import java.util.Locale;
 
+/**
+ * Records a track in the background.
+ *
+ * Commands and fixes are handled on the service's own ingest thread: filter,
+ * store, journal and totals, plus the journal's final save. The main thread
+ * only forwards commands and reads what the ingest thread publishes through
+ * volatile fields, so tracking never does file I/O or track-length work on it.
+ */
 public class GPXTrackingService extends Service implements LocationListener {
 
-    private static final String CHANNEL_ID = "GPX_TRACKING_CHANNEL";
     private static final int NOTIFICATION_ID = 1001;
+    // Fixes can arrive every 2 s; the notification shows minutes and hundredths of a mile
+    private static final long NOTIFICATION_INTERVAL_MS = 5000;
+    private static final String JOURNAL_FILE = "active_track.journal";
 
-    private LocationManager locationManager;
+    private LocationHub locationHub;
     private PowerManager.WakeLock wakeLock;
+    private TrackingNotification notification;
     private GPXManager gpxManager;
-    private String trackName = "Background Track";
-    private final List<GPXManager.GPXPoint> trackPoints = new ArrayList<>();
-
-    private long startTime;
-    private boolean isTracking = false;
-    private boolean isPaused = false;
+    private HandlerThread ingestThread;
+    private Handler ingestHandler;
+
+    // Touched on the ingest thread only
+    private TrackJournal journal;
+    private final TrackStats stats = new TrackStats();
+    private final FixFilter fixFilter = new FixFilter(FixFilter.Config.HIKING, this::storePoint);
+    private final SamplingGovernor governor = new SamplingGovernor();
+
+    // Written on the ingest thread, read from any; trackPoints has one writer and lock-free snapshots
+    private final TrackBuffer trackPoints = new TrackBuffer();
+    private volatile TrackStats.Totals totals = TrackStats.Totals.EMPTY;
+    private volatile double fixesPerKm;
+    private volatile double gpsPowerMw;
+    private volatile String trackName = "Background Track";
+    private volatile long startTime;
+    private volatile boolean isTracking = false;
+    private volatile boolean isPaused = false;
 
     // ===== Binder for Activities =====
     public class GPXTrackingBinder extends Binder {
@@ -53,10 +72,25 @@ public class GPXTrackingService extends Service implements LocationListener {
     @Override
     public void onCreate() {
         super.onCreate();
+
+        ingestThread = new HandlerThread("GPXIngest", Process.THREAD_PRIORITY_BACKGROUND);
+        ingestThread.start();
+        ingestHandler = new Handler(ingestThread.getLooper());
+
         gpxManager = new GPXManager(this);
-        createNotificationChannel();
-        acquireWakeLock();
-        initLocationManager();
+        notification = new TrackingNotification(this, NOTIFICATION_ID, NOTIFICATION_INTERVAL_MS,
+                new TrackingNotification.Content() {
+                    @Override
+                    public boolean isPaused() {
+                        return isPaused;
+                    }
+
+                    @Override
+                    public String getText() {
+                        return formatNotificationText();
+                    }
+                });
+        locationHub = LocationHub.get(this);
     }
 
     @Override
@@ -70,84 +104,163 @@ public class GPXTrackingService extends Service implements LocationListener {
         if (intent != null) {
             String action = intent.getAction();
             if ("START_TRACKING".equals(action)) {
-                trackName = intent.getStringExtra("track_name");
-                if (trackName == null) trackName = "Background Track";
-                startTracking();
+                String name = intent.getStringExtra("track_name");
+                ingestHandler.post(() -> startTracking(name != null ? name : "Background Track"));
             } else if ("STOP_TRACKING".equals(action)) {
-                stopTracking();
+                ingestHandler.post(this::stopTracking);
             } else if ("PAUSE_TRACKING".equals(action)) {
-                pauseTracking();
+                ingestHandler.post(this::pauseTracking);
             } else if ("RESUME_TRACKING".equals(action)) {
-                resumeTracking();
+                ingestHandler.post(this::resumeTracking);
             }
+        } else {
+            // Sticky restart after the process was killed
+            ingestHandler.post(this::recoverTracking);
         }
         return START_STICKY;
     }
 
-    private void startTracking() {
+    // Everything from here to the notification section runs on the ingest thread
+    private void startTracking(String name) {
+        checkIngestThread();
         if (isTracking) return;
         if (!hasLocationPermission()) {
             stopSelf();
             return;
         }
 
+        trackName = name;
         isTracking = true;
         isPaused = false;
         startTime = System.currentTimeMillis();
+        fixFilter.reset();
+        governor.reset();
         trackPoints.clear();
+        stats.reset();
+        publish();
+        // Foreground before any file work: saving a leftover journal can take a while
+        startForeground(NOTIFICATION_ID, notification.build());
+
+        // A journal left behind by a killed session is saved before it is replaced
+        if (getJournalFile().exists()) {
+            try {
+                journal = TrackJournal.open(getJournalFile());
+                finalizeJournal();
+            } catch (IOException e) {
+                getJournalFile().delete();
+            }
+        }
+
+        try {
+            journal = TrackJournal.create(getJournalFile(), trackName, startTime);
+        } catch (IOException e) {
+            journal = null;
+        }
+
+        startRecording();
+    }
 
-        startForeground(NOTIFICATION_ID, createTrackingNotification());
+    private void recoverTracking() {
+        checkIngestThread();
+        if (isTracking || !getJournalFile().exists()) return;
 
         try {
-            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(
-                        LocationManager.GPS_PROVIDER,
-                        5000,
-                        2,
-                        this
-                );
-            }
-        } catch (SecurityException e) {
+            journal = TrackJournal.open(getJournalFile());
+        } catch (IOException e) {
+            getJournalFile().delete();
+            stopSelf();
+            return;
+        }
+
+        trackName = journal.getTrackName();
+        startTime = journal.getStartTime();
+
+        if (!hasLocationPermission()) {
+            finalizeJournal();
+            stopSelf();
+            return;
+        }
+
+        trackPoints.clear();
+        stats.reset();
+        isTracking = true;
+        isPaused = false;
+        publish();
+        // Foreground before the replay, which reads the whole journal
+        startForeground(NOTIFICATION_ID, notification.build());
+
+        try {
+            journal.replay((lat, lon, ele, time) -> {
+                trackPoints.append(lat, lon, ele, time);
+                stats.add(lat, lon, ele, time);
+            });
+        } catch (IOException e) {
+            isTracking = false;
+            try {
+                journal.close();
+            } catch (IOException ignored) { }
+            getJournalFile().delete();
+            journal = null;
+            stopForeground(true);
+            stopSelf();
+            return;
+        }
+
+        publish();
+        startRecording();
+    }
+
+    // The wake lock and GPS are held only between here and stopRecording, never while paused or just bound
+    private void startRecording() {
+        acquireWakeLock();
+        governor.start(SystemClock.elapsedRealtime());
+        requestGpsUpdates();
+    }
+
+    private void stopRecording() {
+        locationHub.unsubscribe(this);
+        governor.stop(SystemClock.elapsedRealtime());
+        releaseWakeLock();
+    }
+
+    // Subscribing again replaces the previous request; fixes are posted to the ingest thread
+    private void requestGpsUpdates() {
+        if (!locationHub.subscribe(this, LocationManager.GPS_PROVIDER,
+                governor.getIntervalMillis(), governor.getMinDistanceMeters(), ingestHandler)) {
             stopSelf();
         }
     }
 
     private void pauseTracking() {
+        checkIngestThread();
         if (!isTracking || isPaused) return;
         isPaused = true;
-        if (locationManager != null) locationManager.removeUpdates(this);
-        updateNotification();
+        stopRecording();
+        // Keeps a stop that ran into the pause, and doesn't smooth across the gap
+        fixFilter.reset();
+        publish();
+        notification.updateNow();
     }
 
     private void resumeTracking() {
+        checkIngestThread();
         if (!isTracking || !isPaused || !hasLocationPermission()) return;
         isPaused = false;
-        if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                // TODO: Consider calling
-                //    ActivityCompat#requestPermissions
-                // here to request the missing permissions, and then overriding
-                //   public void onRequestPermissionsResult(int requestCode, String[] permissions,
-                //                                          int[] grantResults)
-                // to handle the case where the user grants the permission. See the documentation
-                // for ActivityCompat#requestPermissions for more details.
-                return;
-            }
-            locationManager.requestLocationUpdates(
-                    LocationManager.GPS_PROVIDER,
-                    5000,
-                    2,
-                    this
-            );
-        }
-        updateNotification();
+        startRecording();
+        notification.updateNow();
     }
 
     private void stopTracking() {
+        checkIngestThread();
         if (!isTracking) return;
         isTracking = false;
-        if (locationManager != null) locationManager.removeUpdates(this);
-        if (!trackPoints.isEmpty()) saveTrackToGPXManager();
+        stopRecording();
+        fixFilter.reset();
+        // The finished track stays on screen until the next start
+        trackPoints.trimToSize();
+        publish();
+        finalizeJournal();
+        notification.cancel();
         stopForeground(true);
         stopSelf();
     }
@@ -155,156 +268,132 @@ public class GPXTrackingService extends Service implements LocationListener {
     // ================== LOCATION LISTENER ==================
     @Override
     public void onLocationChanged(Location location) {
+        checkIngestThread();
         if (isTracking && !isPaused && location != null) {
-            GPXManager.GPXPoint point = new GPXManager.GPXPoint(location);
-            trackPoints.add(point);
-            updateNotification();
-
-            // Save periodically
-            if (trackPoints.size() % 100 == 0) {
-                saveTrackToGPXManager();
+            if (governor.onFix(location.getLatitude(), location.getLongitude(),
+                    location.hasSpeed() ? location.getSpeed() : -1,
+                    location.getElapsedRealtimeNanos() / 1_000_000)) {
+                requestGpsUpdates();
             }
+            fixFilter.offer(location.getLatitude(), location.getLongitude(),
+                    location.hasAltitude() ? location.getAltitude() : 0, location.getTime(),
+                    location.hasAccuracy() ? location.getAccuracy() : 0);
+            publish();
         }
     }
 
+    // Fixes that survive the filter go straight into the columns; no per-fix point object
+    private void storePoint(double latitude, double longitude, double elevation, long timestamp) {
+        trackPoints.append(latitude, longitude, elevation, timestamp);
+        stats.add(latitude, longitude, elevation, timestamp);
+        appendToJournal(latitude, longitude, elevation, timestamp);
+    }
+
+    // Hands the current totals to readers on other threads
+    private void publish() {
+        totals = stats.totals();
+        fixesPerKm = governor.getFixesPerKm(stats.getTotalDistance());
+        gpsPowerMw = governor.getEstimatedPowerMw();
+        notification.update();
+    }
+
     @Override public void onProviderEnabled(String provider) { }
     @Override public void onProviderDisabled(String provider) { }
     @Override public void onStatusChanged(String provider, int status, android.os.Bundle extras) { }
 
     // ================== NOTIFICATION ==================
-    private Notification createTrackingNotification() {
-        Intent notificationIntent = new Intent(this, MapActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, notificationIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        Intent stopIntent = new Intent(this, GPXTrackingService.class);
-        stopIntent.setAction("STOP_TRACKING");
-        PendingIntent stopPendingIntent = PendingIntent.getService(
-                this, 1, stopIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        Intent toggleIntent = new Intent(this, GPXTrackingService.class);
-        toggleIntent.setAction(isPaused ? "RESUME_TRACKING" : "PAUSE_TRACKING");
-        PendingIntent togglePendingIntent = PendingIntent.getService(
-                this, 2, toggleIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        double miles = calculateTotalDistance() * 0.000621371;
-        long durationMs = System.currentTimeMillis() - startTime;
-        String timeStr = formatDuration(durationMs);
-        double avgSpeed = calculateAverageSpeedMph();
-        double pace = calculatePaceMinPerMile();
-        double elevation = calculateElevationGain();
-
-        String contentText = String.format(
+    // Only running totals are read here, so this costs the same at any track length
+    private String formatNotificationText() {
+        return String.format(
                 Locale.US,
                 "%.2f mi • %s\nAvg: %.1f mph • Pace: %.1f min/mi • ↑%.0f ft",
-                miles, timeStr, avgSpeed, pace, elevation
+                calculateTotalDistance() * 0.000621371,
+                formatDuration(System.currentTimeMillis() - startTime),
+                calculateAverageSpeedMph(),
+                calculatePaceMinPerMile(),
+                calculateElevationGain() * 3.28084
         );
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("🔴 GPS Tracking Active")
-                .setContentText(contentText)
-                .setStyle(new NotificationCompat.BigTextStyle().bigText(contentText))
-                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
-                .setContentIntent(pendingIntent)
-                .addAction(android.R.drawable.ic_media_play, isPaused ? "Resume" : "Pause", togglePendingIntent)
-                .addAction(android.R.drawable.ic_media_pause, "Stop", stopPendingIntent)
-                .setOngoing(true)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setSound(null)
-                .setVibrate(new long[]{0L})
-                .setDefaults(0)
-                .build();
-    }
-
-    private void updateNotification() {
-        NotificationManager manager = getSystemService(NotificationManager.class);
-        manager.notify(NOTIFICATION_ID, createTrackingNotification());
     }
 
     // ================== CALCULATIONS ==================
+    // All O(1) and safe from any thread: they read the totals last published by the ingest thread
     public double calculateTotalDistance() {
-        if (trackPoints.size() < 2) return 0;
-        double total = 0;
-        for (int i = 1; i < trackPoints.size(); i++) {
-            GPXManager.GPXPoint p1 = trackPoints.get(i - 1);
-            GPXManager.GPXPoint p2 = trackPoints.get(i);
-            total += LocationHelper.calculateDistance(
-                    p1.latitude, p1.longitude,
-                    p2.latitude, p2.longitude
-            );
-        }
-        return total;
+        return totals.totalDistance;
     }
 
     public double calculateAverageSpeedMph() {
-        double miles = calculateTotalDistance() * 0.000621371;
-        double hours = (System.currentTimeMillis() - startTime) / 1000.0 / 3600.0;
-        return hours > 0 ? miles / hours : 0;
+        return totals.getAverageSpeedMph(System.currentTimeMillis() - startTime);
     }
 
     public double calculatePaceMinPerMile() {
-        double miles = calculateTotalDistance() * 0.000621371;
-        double hours = (System.currentTimeMillis() - startTime) / 1000.0 / 3600.0;
-        return miles > 0 ? (hours * 60) / miles : 0;
+        return totals.getAveragePaceMinPerMile(System.currentTimeMillis() - startTime);
     }
 
-    // ✅ NEW: "Current pace" (recent segment)
+    // "Current pace" (recent segment)
     public double calculateCurrentPaceMinPerMile() {
-        int size = trackPoints.size();
-        if (size < 3) return 0;
-
-        int N = Math.min(size, 5);
-        GPXManager.GPXPoint start = trackPoints.get(size - N);
-        GPXManager.GPXPoint end = trackPoints.get(size - 1);
-
-        long timeDiff = end.timestamp - start.timestamp;
-        if (timeDiff <= 0) return 0;
+        return totals.currentPaceMinPerMile;
+    }
 
-        float dist = 0;
-        for (int i = size - N; i < size - 1; i++) {
-            Location l1 = trackPoints.get(i).toLocation();
-            Location l2 = trackPoints.get(i + 1).toLocation();
-            dist += l1.distanceTo(l2);
-        }
+    public double calculateElevationGain() {
+        return totals.elevationGain;
+    }
 
-        double miles = dist * 0.000621371;
-        double minutes = timeDiff / 1000.0 / 60.0;
-        return miles > 0 ? minutes / miles : 0;
+    public double calculateElevationLoss() {
+        return totals.elevationLoss;
     }
 
-    public double calculateElevationGain() {
-        if (trackPoints.size() < 2) return 0;
-        double gain = 0;
-        for (int i = 1; i < trackPoints.size(); i++) {
-            double diff = trackPoints.get(i).altitude - trackPoints.get(i - 1).altitude;
-            if (diff > 0) gain += diff;
-        }
-        return gain;
+    public long getMovingTime() {
+        return totals.movingTime;
     }
 
     public long getTrackingDuration() {
         return isTracking ? System.currentTimeMillis() - startTime : 0;
     }
 
+    // GPS cost of the recording so far; both restart with the service after a crash
+    public double getFixesPerKm() {
+        return fixesPerKm;
+    }
+
+    public double getEstimatedGpsPowerMw() {
+        return gpsPowerMw;
+    }
+
     // ================== HELPERS ==================
-    private void saveTrackToGPXManager() {
-        if (trackPoints.isEmpty()) return;
+    private File getJournalFile() {
+        return new File(getFilesDir(), JOURNAL_FILE);
+    }
 
-        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yy-HH-mm-ss", Locale.US);
-        String fileName = sdf.format(new java.util.Date());
+    // Commands, fixes and track files are only handled on the ingest thread; debug builds fail fast if that ever changes
+    private void checkIngestThread() {
+        if (HikingApplication.isDebuggable() && Looper.myLooper() != ingestThread.getLooper()) {
+            throw new IllegalStateException("Tracking work off the ingest thread");
+        }
+    }
+
+    // One fixed-size record per fix, so this costs the same at any track length
+    private void appendToJournal(double latitude, double longitude, double elevation, long timestamp) {
+        checkIngestThread();
+        if (journal == null) return;
+        try {
+            journal.append(latitude, longitude, elevation, timestamp);
+        } catch (IOException ignored) { }
+    }
 
-        GPXManager.GPXTrack track = new GPXManager.GPXTrack(fileName);
-        track.points.addAll(trackPoints);
+    // Writes the journal out as one GPX file and removes it. Kept on disk if saving fails.
+    private void finalizeJournal() {
+        checkIngestThread();
+        if (journal == null) return;
 
         try {
-            gpxManager.saveTrackToFile(track);
-        } catch (Exception ignored) { }
+            if (journal.size() > 0) gpxManager.saveJournalToFile(journal);
+            journal.delete();
+        } catch (Exception e) {
+            try {
+                journal.close();
+            } catch (IOException ignored) { }
+        }
+        journal = null;
     }
 
     private String formatDuration(long ms) {
@@ -316,31 +405,20 @@ public class GPXTrackingService extends Service implements LocationListener {
                 : String.format(Locale.US, "%dm", minutes);
     }
 
-    private void initLocationManager() {
-        locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
-    }
-
     private void acquireWakeLock() {
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
-                PowerManager.PARTIAL_WAKE_LOCK,
-                "HikingUtilityApp:GPXTracking"
-        );
+        if (wakeLock == null) {
+            PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+            wakeLock = powerManager.newWakeLock(
+                    PowerManager.PARTIAL_WAKE_LOCK,
+                    "HikingUtilityApp:GPXTracking"
+            );
+            wakeLock.setReferenceCounted(false);
+        }
         wakeLock.acquire();
     }
 
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    CHANNEL_ID,
-                    "GPS Tracking",
-                    NotificationManager.IMPORTANCE_LOW
-            );
-            channel.setDescription("Background GPS tracking for hiking");
-            channel.setSound(null, null);
-            NotificationManager manager = getSystemService(NotificationManager.class);
-            manager.createNotificationChannel(channel);
-        }
+    private void releaseWakeLock() {
+        if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
     }
 
     private boolean hasLocationPermission() {
@@ -353,9 +431,12 @@ public class GPXTrackingService extends Service implements LocationListener {
     public void onDestroy() {
         super.onDestroy();
 
-        if (locationManager != null) locationManager.removeUpdates(this);
-        if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
-        if (!trackPoints.isEmpty()) saveTrackToGPXManager();
+        if (locationHub != null) locationHub.unsubscribe(this);
+        releaseWakeLock();
+        if (notification != null) notification.cancel();
+        // Saves a track still open when the service is torn down, then lets the thread end
+        ingestHandler.post(this::finalizeJournal);
+        ingestThread.quitSafely();
     }
 
     // ================== PUBLIC ACCESSORS ==================
@@ -363,8 +444,10 @@ public class GPXTrackingService extends Service implements LocationListener {
         return isTracking && !isPaused;
     }
 
-    public List<GPXManager.GPXPoint> getCurrentTrackPoints() {
-        return new ArrayList<>(trackPoints);
+    // Zero-copy, immutable view of the points so far. Safe to read from any thread;
+    // use Snapshot.continues() to read only what was appended since the last call.
+    public TrackBuffer.Snapshot getCurrentTrackPoints() {
+        return trackPoints.snapshot();
     }
 
     public String getTrackName() {
@@ -0,0 +1,68 @@
+package com.dave.HikingUtilityApp;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Looper;
+import android.os.StrictMode;
+
+import java.io.File;
+
+/**
+ * Process-wide setup. Debug builds watch the main thread for disk access:
+ * StrictMode logs any read or write made on it and then kills the process,
+ * and track file I/O that reaches it fails fast through {@link #checkNotMainThread}.
+ *
+ * Looking up the app's directories checks the disk on every call, so they are
+ * resolved once here, before the policy is set, for code that runs on the main thread.
+ */
+public class HikingApplication extends Application {
+
+    private static volatile boolean debuggable;
+    private static volatile File filesDir;
+    private static volatile File externalFilesDir;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        filesDir = getFilesDir();
+        externalFilesDir = getExternalFilesDir(null);
+        // Loads the preferences now, so reads from the main thread are served from memory
+        ShownTracks.get(this);
+        if (debuggable) {
+            // Set here rather than by a screen or the service, so it covers the main thread from launch
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+        }
+    }
+
+    public static boolean isDebuggable() {
+        return debuggable;
+    }
+
+    /** {@link Context#getFilesDir()}, without touching the disk after startup. */
+    public static File filesDir(Context context) {
+        File dir = filesDir;
+        return dir != null ? dir : context.getFilesDir();
+    }
+
+    /** {@link Context#getExternalFilesDir(String)} for null, looked up once like {@link #filesDir}. */
+    public static File externalFilesDir(Context context) {
+        File dir = externalFilesDir;
+        return dir != null ? dir : context.getExternalFilesDir(null);
+    }
+
+    /**
+     * Throws in debug builds when called on the main thread; does nothing in release.
+     */
+    public static void checkNotMainThread(String what) {
+        if (debuggable && Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException(what + " on the main thread");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.dave.HikingUtilityApp;
+
+import org.maplibre.android.maps.Style;
+import org.maplibre.android.style.layers.LineLayer;
+import org.maplibre.android.style.layers.PropertyFactory;
+import org.maplibre.android.style.sources.GeoJsonSource;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws the track being recorded without re-sending the whole line on every fix.
+ *
+ * Only the open tail (at most {@link #CHUNK_SIZE} segments) is pushed to the map
+ * per update. Once the tail is full it is sealed into its own source. Each
+ * sealed piece has a level, and two pieces of the same level are merged into
+ * one of the next, like a binary counter or the levels of an LSM tree. The map
+ * then holds O(log n) sources for n points and each point is re-sent O(log n)
+ * times over the whole hike.
+ *
+ * A chunk is run through {@link TrackSimplifier} once, when it is sealed, so
+ * standing still or walking straight doesn't pile up vertices. Merging joins
+ * the pieces' simplified points without simplifying again, so a merge costs
+ * no more than sending what it draws.
+ */
+public class LiveTrackRenderer {
+
+    private static final int CHUNK_SIZE = 256;
+
+    // Sealed pieces are simplified once; a quarter metre is well under GPS noise
+    // and invisible at any zoom a hiker uses
+    private static final double SEALED_TOLERANCE_METERS = 0.25;
+
+    private static final class Segment {
+        final int start;
+        final int end; // inclusive; the next piece starts on this point so the line is continuous
+        final int level; // 2^level chunks
+        final int[] simplified; // indices of the points drawn, from start to end
+        final String sourceId;
+        final String layerId;
+
+        Segment(int start, int end, int level, int[] simplified, String sourceId, String layerId) {
+            this.start = start;
+            this.end = end;
+            this.level = level;
+            this.simplified = simplified;
+            this.sourceId = sourceId;
+            this.layerId = layerId;
+        }
+    }
+
+    private final String sourceId;
+    private final String layerId;
+    private final String color;
+    private final float width;
+
+    private final List<Segment> sealed = new ArrayList<>();
+    private int tailStart;
+    private int nextSegmentId;
+    private TrackBuffer.Snapshot drawn;
+
+    public LiveTrackRenderer(String sourceId, String layerId, String color, float width) {
+        this.sourceId = sourceId;
+        this.layerId = layerId;
+        this.color = color;
+        this.width = width;
+    }
+
+    /**
+     * Adds the tail source and layer to a freshly loaded style.
+     */
+    public void attach(Style style) {
+        if (style.getSource(sourceId) == null) {
+            style.addSource(new GeoJsonSource(sourceId, LineString.fromLngLats(new ArrayList<>())));
+            style.addLayer(newLayer(layerId, sourceId));
+        }
+        // Anything sealed belonged to a previous style
+        sealed.clear();
+        tailStart = 0;
+        drawn = null;
+    }
+
+    public void update(Style style, TrackBuffer.Snapshot snapshot) {
+        if (snapshot == null) return;
+
+        if (!snapshot.continues(drawn)) {
+            reset(style);
+            sealAll(style, snapshot);
+        } else if (drawn.size() == snapshot.size()) {
+            return;
+        } else {
+            while (snapshot.size() - 1 - tailStart >= CHUNK_SIZE) {
+                addSegment(style, snapshot, 0, tailStart, tailStart + CHUNK_SIZE);
+                tailStart += CHUNK_SIZE;
+                mergeEqualLevels(style, snapshot);
+            }
+        }
+
+        GeoJsonSource tail = style.getSourceAs(sourceId);
+        if (tail != null) {
+            tail.setGeoJson(LineString.fromLngLats(toLinePoints(snapshot, tailStart, snapshot.size() - 1)));
+        }
+        drawn = snapshot;
+    }
+
+    // First draw of an existing track: one piece per set bit of the chunk count,
+    // the same levels incremental merging would reach
+    private void sealAll(Style style, TrackBuffer.Snapshot snapshot) {
+        int chunks = Math.max(0, (snapshot.size() - 1) / CHUNK_SIZE);
+        for (int bit = Integer.highestOneBit(Math.max(chunks, 1)); bit > 0; bit >>= 1) {
+            if ((chunks & bit) == 0) continue;
+            int end = tailStart + bit * CHUNK_SIZE;
+            addSegment(style, snapshot, Integer.numberOfTrailingZeros(bit), tailStart, end);
+            tailStart = end;
+        }
+    }
+
+    // Works out the whole carry before touching the map, so a cascade of merges
+    // re-sends its points once rather than once per level
+    private void mergeEqualLevels(Style style, TrackBuffer.Snapshot snapshot) {
+        int count = 1;
+        int level = sealed.get(sealed.size() - 1).level;
+        while (count < sealed.size() && sealed.get(sealed.size() - 1 - count).level == level) {
+            level++;
+            count++;
+        }
+        if (count == 1) return;
+
+        List<Segment> merging = sealed.subList(sealed.size() - count, sealed.size());
+        int length = 1;
+        for (Segment segment : merging) length += segment.simplified.length - 1;
+        // Neighbours share their boundary point, which simplifying always keeps
+        int[] simplified = new int[length];
+        int n = 0;
+        for (Segment segment : merging) {
+            int from = n == 0 ? 0 : 1;
+            System.arraycopy(segment.simplified, from, simplified, n, segment.simplified.length - from);
+            n += segment.simplified.length - from;
+        }
+
+        int start = merging.get(0).start;
+        int end = merging.get(count - 1).end;
+        for (int i = 0; i < count; i++) {
+            removeSegment(style, sealed.get(sealed.size() - 1));
+        }
+        addSegment(style, snapshot, level, start, end, simplified);
+    }
+
+    private void addSegment(Style style, TrackBuffer.Snapshot snapshot, int level, int start, int end) {
+        addSegment(style, snapshot, level, start, end,
+                TrackSimplifier.simplify(snapshot, start, end, SEALED_TOLERANCE_METERS));
+    }
+
+    private void addSegment(Style style, TrackBuffer.Snapshot snapshot, int level, int start, int end,
+                            int[] simplified) {
+        int id = nextSegmentId++;
+        Segment segment = new Segment(start, end, level, simplified,
+                sourceId + "-sealed-" + id, layerId + "-sealed-" + id);
+        style.addSource(new GeoJsonSource(segment.sourceId,
+                LineString.fromLngLats(toLinePoints(snapshot, simplified))));
+        style.addLayerBelow(newLayer(segment.layerId, segment.sourceId), layerId);
+        sealed.add(segment);
+    }
+
+    private void removeSegment(Style style, Segment segment) {
+        style.removeLayer(segment.layerId);
+        style.removeSource(segment.sourceId);
+        sealed.remove(segment);
+    }
+
+    private void reset(Style style) {
+        for (Segment segment : new ArrayList<>(sealed)) {
+            removeSegment(style, segment);
+        }
+        tailStart = 0;
+        drawn = null;
+    }
+
+    private LineLayer newLayer(String id, String source) {
+        return new LineLayer(id, source).withProperties(
+                PropertyFactory.lineColor(color),
+                PropertyFactory.lineWidth(width)
+        );
+    }
+
+    private static List<Point> toLinePoints(TrackView points, int start, int end) {
+        List<Point> linePoints = new ArrayList<>(Math.max(0, end - start + 1));
+        for (int i = start; i <= end; i++) {
+            linePoints.add(Point.fromLngLat(points.getLongitude(i), points.getLatitude(i)));
+        }
+        return linePoints;
+    }
+
+    private static List<Point> toLinePoints(TrackView points, int[] indices) {
+        List<Point> linePoints = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            linePoints.add(Point.fromLngLat(points.getLongitude(i), points.getLatitude(i)));
+        }
+        return linePoints;
+    }
+}
@@ -9,9 +9,10 @@ import android.location.LocationManager;
 import android.os.Bundle;
 import androidx.core.content.ContextCompat;
 
+// Per-screen view of LocationHub: keeps the best recent fix and reports errors to the screen
 public class LocationHelper implements LocationListener {
 
-    private final LocationManager locationManager;
+    private final LocationHub locationHub;
     private final Context context;
     private final LocationUpdateListener listener;
     private Location currentLocation;
@@ -26,7 +27,7 @@ public class LocationHelper implements LocationListener {
     public LocationHelper(Context context, LocationUpdateListener listener) {
         this.context = context;
         this.listener = listener;
-        locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+        locationHub = LocationHub.get(context);
     }
 
     public void startLocationUpdates() {
@@ -36,61 +37,54 @@ public class LocationHelper implements LocationListener {
             return;
         }
 
-        try {
-            // Check which providers are available
-            isGPSEnabled = locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER);
-            isNetworkEnabled = locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER);
+        // Check which providers are available
+        isGPSEnabled = locationHub.isProviderEnabled(LocationManager.GPS_PROVIDER);
+        isNetworkEnabled = locationHub.isProviderEnabled(LocationManager.NETWORK_PROVIDER);
 
-            if (!isGPSEnabled && !isNetworkEnabled) {
-                listener.onLocationError("No location providers available");
-                return;
-            }
+        if (!isGPSEnabled && !isNetworkEnabled) {
+            listener.onLocationError("No location providers available");
+            return;
+        }
 
-            // Start GPS updates if available
-            if (isGPSEnabled) {
-                locationManager.requestLocationUpdates(
-                        LocationManager.GPS_PROVIDER,
-                        2000, // 2 seconds
-                        1,    // 1 meter
-                        this
-                );
-
-                // Get last known GPS location
-                Location lastGPS = locationManager.getLastKnownLocation(LocationManager.GPS_PROVIDER);
-                if (lastGPS != null) {
-                    currentLocation = lastGPS;
-                    listener.onLocationUpdate(lastGPS);
-                }
+        boolean started = false;
+
+        // Start GPS updates if available
+        if (isGPSEnabled) {
+            started = locationHub.subscribe(this, LocationManager.GPS_PROVIDER,
+                    2000, // 2 seconds
+                    1     // 1 meter
+            );
+
+            // Get last known GPS location
+            Location lastGPS = locationHub.getLastKnownLocation(LocationManager.GPS_PROVIDER);
+            if (lastGPS != null) {
+                currentLocation = lastGPS;
+                listener.onLocationUpdate(lastGPS);
             }
+        }
 
-            // Start Network updates as backup
-            if (isNetworkEnabled) {
-                locationManager.requestLocationUpdates(
-                        LocationManager.NETWORK_PROVIDER,
-                        5000, // 5 seconds
-                        10,   // 10 meters
-                        this
-                );
-
-                // Get last known network location if no GPS
-                if (currentLocation == null) {
-                    Location lastNetwork = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
-                    if (lastNetwork != null) {
-                        currentLocation = lastNetwork;
-                        listener.onLocationUpdate(lastNetwork);
-                    }
+        // Start Network updates as backup
+        if (isNetworkEnabled) {
+            started |= locationHub.subscribe(this, LocationManager.NETWORK_PROVIDER,
+                    5000, // 5 seconds
+                    10    // 10 meters
+            );
+
+            // Get last known network location if no GPS
+            if (currentLocation == null) {
+                Location lastNetwork = locationHub.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
+                if (lastNetwork != null) {
+                    currentLocation = lastNetwork;
+                    listener.onLocationUpdate(lastNetwork);
                 }
             }
-
-        } catch (Exception e) {
-            listener.onLocationError("Failed to start location updates: " + e.getMessage());
         }
+
+        if (!started) listener.onLocationError("Failed to start location updates");
     }
 
     public void stopLocationUpdates() {
-        if (locationManager != null) {
-            locationManager.removeUpdates(this);
-        }
+        locationHub.unsubscribe(this);
     }
 
     public Location getCurrentLocation() {
@@ -157,26 +151,10 @@ public class LocationHelper implements LocationListener {
 
     // Utility methods for distance and bearing calculations
     public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371000; // Radius of the earth in meters
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c; // Distance in meters
+        return Geodesy.distance(lat1, lon1, lat2, lon2);
     }
 
     public static double calculateBearing(double lat1, double lon1, double lat2, double lon2) {
-        double deltaLon = Math.toRadians(lon2 - lon1);
-        double lat1Rad = Math.toRadians(lat1);
-        double lat2Rad = Math.toRadians(lat2);
-
-        double y = Math.sin(deltaLon) * Math.cos(lat2Rad);
-        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) -
-                Math.sin(lat1Rad) * Math.cos(lat2Rad) * Math.cos(deltaLon);
-
-        double bearing = Math.toDegrees(Math.atan2(y, x));
-        return (bearing + 360) % 360; // Normalize to 0-360
+        return Geodesy.bearing(lat1, lon1, lat2, lon2);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The app's only LocationManager registrations.
+ *
+ * Screens and the tracking service subscribe here per provider with the rate
+ * they want. Each provider is registered once, at the strictest interval and
+ * displacement any subscriber asked for, and removed as soon as nobody needs
+ * it. Each fix is then handed to every subscriber of that provider, skipping
+ * the ones that asked for a slower rate and already had a fix recently.
+ *
+ * Safe to use from any thread. Fixes arrive on the main thread and are
+ * delivered there, or posted to the Handler a subscriber gave.
+ */
+public final class LocationHub {
+
+    private static LocationHub instance;
+
+    private static final class Subscription {
+        final LocationListener listener;
+        final long intervalMs;
+        final float minDistanceMeters;
+        final Handler handler; // null to deliver on the main thread directly
+        Location lastDelivered;
+        long lastDeliveredTime;
+
+        Subscription(LocationListener listener, long intervalMs, float minDistanceMeters, Handler handler) {
+            this.listener = listener;
+            this.intervalMs = intervalMs;
+            this.minDistanceMeters = minDistanceMeters;
+            this.handler = handler;
+        }
+
+        void deliver(Location location) {
+            if (handler == null) listener.onLocationChanged(location);
+            else handler.post(() -> listener.onLocationChanged(location));
+        }
+
+        // Fixes arrive at the registered rate, not exactly on each subscriber's own,
+        // so one up to half a registered interval early still counts as on time
+        boolean wants(Location location, long now, long registeredInterval) {
+            if (lastDelivered == null) return true;
+            if (now - lastDeliveredTime < intervalMs - registeredInterval / 2) return false;
+            return minDistanceMeters <= 0 || location.distanceTo(lastDelivered) >= minDistanceMeters;
+        }
+    }
+
+    // One registration with LocationManager, shared by every subscriber of a provider
+    private final class ProviderRegistration implements LocationListener {
+        final String provider;
+        final Map<LocationListener, Subscription> subscribers = new LinkedHashMap<>();
+        long registeredInterval = -1; // -1 while not registered
+        float registeredDistance;
+
+        ProviderRegistration(String provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public void onLocationChanged(Location location) {
+            long now = SystemClock.elapsedRealtime();
+            // Picked under the lock, delivered outside it, as a subscriber may unsubscribe from its callback
+            List<Subscription> recipients = new ArrayList<>();
+            synchronized (LocationHub.this) {
+                for (Subscription subscription : subscribers.values()) {
+                    if (!subscription.wants(location, now, registeredInterval)) continue;
+                    subscription.lastDelivered = location;
+                    subscription.lastDeliveredTime = now;
+                    recipients.add(subscription);
+                }
+            }
+            for (Subscription subscription : recipients) subscription.deliver(location);
+        }
+
+        // Only the screens listen for these, on the main thread
+        @Override
+        public void onProviderEnabled(String provider) {
+            for (Subscription subscription : subscribersCopy()) {
+                if (subscription.handler == null) subscription.listener.onProviderEnabled(provider);
+            }
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+            for (Subscription subscription : subscribersCopy()) {
+                if (subscription.handler == null) subscription.listener.onProviderDisabled(provider);
+            }
+        }
+
+        private List<Subscription> subscribersCopy() {
+            synchronized (LocationHub.this) {
+                return new ArrayList<>(subscribers.values());
+            }
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) { }
+    }
+
+    private final LocationManager locationManager;
+    private final Map<String, ProviderRegistration> providers = new HashMap<>();
+
+    public static synchronized LocationHub get(Context context) {
+        if (instance == null) {
+            instance = new LocationHub((LocationManager) context.getApplicationContext()
+                    .getSystemService(Context.LOCATION_SERVICE));
+        }
+        return instance;
+    }
+
+    LocationHub(LocationManager locationManager) {
+        this.locationManager = locationManager;
+    }
+
+    public boolean subscribe(LocationListener listener, String provider, long intervalMs, float minDistanceMeters) {
+        return subscribe(listener, provider, intervalMs, minDistanceMeters, null);
+    }
+
+    /**
+     * Adds or updates a subscription to one provider; fixes are posted to {@code handler}, if given.
+     *
+     * @return false if the provider doesn't exist or location permission is missing; an
+     *         existing subscription of {@code listener} is then left as it was
+     */
+    public synchronized boolean subscribe(LocationListener listener, String provider, long intervalMs,
+                                          float minDistanceMeters, Handler handler) {
+        ProviderRegistration registration = providers.get(provider);
+        if (registration == null) {
+            registration = new ProviderRegistration(provider);
+            providers.put(provider, registration);
+        }
+        Subscription previous = registration.subscribers.put(listener,
+                new Subscription(listener, intervalMs, minDistanceMeters, handler));
+        if (update(registration)) return true;
+
+        // Back to how it was, so a failed change doesn't cost the listener the subscription it had
+        if (previous != null) registration.subscribers.put(listener, previous);
+        else registration.subscribers.remove(listener);
+        update(registration);
+        return false;
+    }
+
+    /**
+     * Removes every subscription of {@code listener}; providers nobody needs any more are dropped.
+     */
+    public synchronized void unsubscribe(LocationListener listener) {
+        for (ProviderRegistration registration : providers.values()) {
+            if (registration.subscribers.remove(listener) != null) update(registration);
+        }
+    }
+
+    public Location getLastKnownLocation(String provider) {
+        try {
+            return locationManager.getLastKnownLocation(provider);
+        } catch (SecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean isProviderEnabled(String provider) {
+        return locationManager.isProviderEnabled(provider);
+    }
+
+    // Registers the provider at the strictest request among its subscribers, or removes it
+    private boolean update(ProviderRegistration registration) {
+        if (registration.subscribers.isEmpty()) {
+            if (registration.registeredInterval >= 0) locationManager.removeUpdates(registration);
+            registration.registeredInterval = -1;
+            return true;
+        }
+
+        long interval = Long.MAX_VALUE;
+        float distance = Float.MAX_VALUE;
+        for (Subscription subscription : registration.subscribers.values()) {
+            interval = Math.min(interval, subscription.intervalMs);
+            distance = Math.min(distance, subscription.minDistanceMeters);
+        }
+        if (interval == registration.registeredInterval && distance == registration.registeredDistance) return true;
+
+        try {
+            // Registering the same listener again replaces its request
+            locationManager.requestLocationUpdates(registration.provider, interval, distance,
+                    registration, Looper.getMainLooper());
+        } catch (SecurityException | IllegalArgumentException e) {
+            return false;
+        }
+        registration.registeredInterval = interval;
+        registration.registeredDistance = distance;
+        return true;
+    }
+}
@@ -5,11 +5,11 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.os.StrictMode;
 import android.widget.Button;
 import android.widget.Toast;
 
@@ -21,6 +21,7 @@ import androidx.core.content.ContextCompat;
 import org.maplibre.android.MapLibre;
 import org.maplibre.android.camera.CameraPosition;
 import org.maplibre.android.geometry.LatLng;
+import org.maplibre.android.geometry.LatLngBounds;
 import org.maplibre.android.location.LocationComponentActivationOptions;
 import org.maplibre.android.location.modes.RenderMode;
 import org.maplibre.android.maps.MapLibreMap;
@@ -33,6 +34,7 @@ import org.maplibre.geojson.Point;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class MapActivity extends AppCompatActivity implements LocationHelper.LocationUpdateListener {
 
@@ -49,16 +51,43 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
 
     private boolean autoCentreEnabled = false;
 
+    private final LiveTrackRenderer liveTrackRenderer =
+            new LiveTrackRenderer("live-gpx-track", "live-gpx-layer", "#FF0000", 4f);
+
+    private TrackOverlayRenderer trackOverlayRenderer;
+
+    private TrackView importedPoints;
+    private TrackSimplifier importedSimplifier;
+    private int[] importedLevel;
+
+    // Track handed over by GPXActivity, or picked with a long press; drawn over the toggled-on ones
+    private GPXTrack shownTrack;
+
+    private TrackImporter trackImporter;
+    private TrackImporter.Task importTask;
+
+    private static final double NEAREST_TRACK_PIXELS = 40;
+    private static final double NEAREST_TRACK_MIN_METERS = 25;
+
      private static final String MAPTILER_KEY = "******";
 
     // ================== LIFECYCLE ==================
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        // Initialize MapLibre before inflating layout
-        MapLibre.getInstance(this);
+        // MapLibre opens its caches on first use and has no asynchronous way to, so its
+        // setup is let through the debug disk policy
+        StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskWrites();
+        try {
+            // Initialize MapLibre before inflating layout
+            MapLibre.getInstance(this);
+
+            super.onCreate(savedInstanceState);
+            setContentView(R.layout.activity_map);
+        } finally {
+            StrictMode.setThreadPolicy(policy);
+        }
 
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_map);
+        shownTrack = TrackRegistry.get(getIntent().getStringExtra(TrackRegistry.EXTRA_TRACK_ID));
 
         initViews();
         initServices();
@@ -67,12 +96,17 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
         // Map async setup
         mapView.getMapAsync(map -> {
             mapLibreMap = map;
+            mapLibreMap.addOnCameraIdleListener(this::renderImportedGPXTrack);
+            mapLibreMap.addOnCameraIdleListener(this::updateTrackOverlay);
+            mapLibreMap.addOnMapLongClickListener(this::showNearestTrack);
             String styleURL = "https://api.maptiler.com/maps/topo-v2/style.json?key=" + MAPTILER_KEY;
             mapLibreMap.setStyle(new Style.Builder().fromUri(styleURL), style -> {
                 initGPXTrackLayer();
                 if (hasLocationPermission()) enableLocationComponent(style);
                 centerCameraOnCurrentLocation();
-                handleActiveGPXTrack();
+                if (shownTrack != null) updateImportedGPXTrack(shownTrack.points);
+                trackOverlayRenderer.setShownTracks(ShownTracks.get(this));
+                updateTrackOverlay();
             });
         });
     }
@@ -91,6 +125,13 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
     }
 
     private void initServices() {
+        trackImporter = new TrackImporter(this);
+        trackOverlayRenderer = new TrackOverlayRenderer(this, "overlay-gpx-tracks", "overlay-gpx-layer", "#0000FF", 3f);
+
+        // The overlay culls through the index, so redraw once it's loaded and whenever it changes
+        TrackSpatialIndex spatialIndex = TrackSpatialIndex.get(this);
+        spatialIndex.whenReady(trackOverlayRenderer::refresh);
+        spatialIndex.refreshAsync(trackOverlayRenderer::refresh);
         locationHelper = new LocationHelper(this, this);
         if (hasLocationPermission()) locationHelper.startLocationUpdates();
 
@@ -125,18 +166,8 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
         if (mapLibreMap == null) return;
 
         mapLibreMap.getStyle(style -> {
-            if (style.getSource("live-gpx-track") == null) {
-                GeoJsonSource gpxSource = new GeoJsonSource("live-gpx-track",
-                        LineString.fromLngLats(new ArrayList<>()));
-                style.addSource(gpxSource);
-
-                LineLayer gpxLayer = new LineLayer("live-gpx-layer", "live-gpx-track")
-                        .withProperties(
-                                org.maplibre.android.style.layers.PropertyFactory.lineColor("#FF0000"),
-                                org.maplibre.android.style.layers.PropertyFactory.lineWidth(4f)
-                        );
-                style.addLayer(gpxLayer);
-            }
+            trackOverlayRenderer.attach(style);
+            liveTrackRenderer.attach(style);
 
             if (style.getSource("imported-gpx-track") == null) {
                 GeoJsonSource imported = new GeoJsonSource("imported-gpx-track",
@@ -153,27 +184,32 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
         });
     }
 
-    private void updateGPXTrack(List<GPXManager.GPXPoint> points) {
-        if (mapLibreMap == null || points == null) return;
-
-        List<Point> linePoints = new ArrayList<>();
-        for (GPXManager.GPXPoint p : points) {
-            linePoints.add(Point.fromLngLat(p.longitude, p.latitude));
-        }
+    private void updateGPXTrack(TrackBuffer.Snapshot snapshot) {
+        if (mapLibreMap == null || snapshot == null) return;
 
-        mapLibreMap.getStyle(style -> {
-            GeoJsonSource gpxSource = style.getSourceAs("live-gpx-track");
-            if (gpxSource != null) gpxSource.setGeoJson(LineString.fromLngLats(linePoints));
-        });
+        // Only the open tail of the line is re-sent; see LiveTrackRenderer
+        mapLibreMap.getStyle(style -> liveTrackRenderer.update(style, snapshot));
     }
 
-    private void updateImportedGPXTrack(List<GPXManager.GPXPoint> points) {
+    private void updateImportedGPXTrack(TrackView points) {
         if (mapLibreMap == null || points == null) return;
+        if (points == importedPoints) return; // same cached track; already drawn
 
-        List<Point> linePoints = new ArrayList<>();
-        for (GPXManager.GPXPoint p : points) {
-            linePoints.add(Point.fromLngLat(p.longitude, p.latitude));
-        }
+        // Simplify once, then each zoom level is just a lookup
+        importedPoints = points;
+        importedSimplifier = new TrackSimplifier(points);
+        importedLevel = null;
+        renderImportedGPXTrack();
+    }
+
+    private void renderImportedGPXTrack() {
+        if (mapLibreMap == null || importedSimplifier == null) return;
+
+        int[] level = importedSimplifier.getLevel(mapLibreMap.getCameraPosition().zoom);
+        if (level == importedLevel) return;
+        importedLevel = level;
+
+        List<Point> linePoints = toLinePoints(importedPoints, level);
 
         mapLibreMap.getStyle(style -> {
             GeoJsonSource imported = style.getSourceAs("imported-gpx-track");
@@ -181,19 +217,47 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
         });
     }
 
-    private void handleActiveGPXTrack() {
-        SharedPreferences prefs = getSharedPreferences("GPX_PREFS", MODE_PRIVATE);
-        String activeGPXPath = prefs.getString("ACTIVE_TRACK", null);
-
-        if (activeGPXPath != null) {
-            GPXManager gpxManager = new GPXManager(this);
-            try {
-                GPXManager.GPXTrack track = gpxManager.importGPXFromFile(activeGPXPath);
-                if (!track.points.isEmpty()) updateImportedGPXTrack(track.points);
-            } catch (Exception e) {
-                Toast.makeText(this, "." + e.getMessage(), Toast.LENGTH_LONG).show();
-            }
+    private static List<Point> toLinePoints(TrackView points, int[] indices) {
+        List<Point> linePoints = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            linePoints.add(Point.fromLngLat(points.getLongitude(i), points.getLatitude(i)));
         }
+        return linePoints;
+    }
+
+    private void updateTrackOverlay() {
+        if (mapLibreMap == null) return;
+
+        LatLngBounds bounds = mapLibreMap.getProjection().getVisibleRegion().latLngBounds;
+        trackOverlayRenderer.setViewport(bounds.getLatSouth(), bounds.getLonWest(),
+                bounds.getLatNorth(), bounds.getLonEast(), mapLibreMap.getCameraPosition().zoom);
+    }
+
+    // Long press picks the saved track passing closest to the finger
+    private boolean showNearestTrack(LatLng point) {
+        double radius = Math.max(NEAREST_TRACK_MIN_METERS, NEAREST_TRACK_PIXELS
+                * TrackSimplifier.metersPerPixel(mapLibreMap.getCameraPosition().zoom, point.getLatitude()));
+        TrackSpatialIndex.Nearest nearest = TrackSpatialIndex.get(this)
+                .nearest(point.getLatitude(), point.getLongitude(), radius);
+        if (nearest == null) return false;
+
+        if (importTask != null) importTask.cancel();
+        importTask = trackImporter.importFile(nearest.file, false, new TrackImporter.Callback() {
+            @Override
+            public void onComplete(TrackImporter.Result result) {
+                importTask = null;
+                if (!result.track.points.isEmpty()) updateImportedGPXTrack(result.track.points);
+                Toast.makeText(MapActivity.this, String.format(Locale.US, "%s (%.0f m away)",
+                        nearest.file.getName().replace(".gpx", ""), nearest.distance), Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                importTask = null;
+                Toast.makeText(MapActivity.this, "." + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+        return true;
     }
 
     private void centerCameraOnCurrentLocation() {
@@ -260,7 +324,8 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
     protected void onResume() {
         super.onResume();
         if (locationHelper != null && hasLocationPermission()) locationHelper.startLocationUpdates();
-        if (mapLibreMap != null && mapLibreMap.getStyle() != null) handleActiveGPXTrack();
+        // Tracks may have been toggled in the library meanwhile
+        if (mapLibreMap != null && mapLibreMap.getStyle() != null) trackOverlayRenderer.setShownTracks(ShownTracks.get(this));
         if (mapView != null) mapView.onResume();
     }
 
@@ -282,11 +347,14 @@ public class MapActivity extends AppCompatActivity implements LocationHelper.Loc
             unbindService(serviceConnection);
             serviceBound = false;
         }
+        if (importTask != null) importTask.cancel();
+        trackOverlayRenderer.release();
+        if (isFinishing()) TrackRegistry.release(getIntent().getStringExtra(TrackRegistry.EXTRA_TRACK_ID));
         if (mapView != null) mapView.onDestroy();
     }
 
     @Override
-    public void onLowMemory() { super.onLowMemory(); if (mapView != null) mapView.onLowMemory(); }
+    public void onLowMemory() { super.onLowMemory(); TrackCache.clear(); if (mapView != null) mapView.onLowMemory(); }
 
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
@@ -0,0 +1,44 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The saved tracks toggled on for the map, as absolute paths in GPX_PREFS.
+ *
+ * Replaces the single ACTIVE_TRACK preference; a track left active by an
+ * older version is carried over the first time the set is read.
+ */
+public final class ShownTracks {
+
+    private static final String PREFS = "GPX_PREFS";
+    private static final String KEY_SHOWN = "SHOWN_TRACKS";
+    private static final String KEY_LEGACY_ACTIVE = "ACTIVE_TRACK";
+
+    private ShownTracks() {}
+
+    public static Set<String> get(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        // The returned set belongs to SharedPreferences and must not be modified
+        Set<String> shown = new HashSet<>(prefs.getStringSet(KEY_SHOWN, Collections.emptySet()));
+
+        String legacy = prefs.getString(KEY_LEGACY_ACTIVE, null);
+        if (legacy != null) {
+            shown.add(legacy);
+            prefs.edit().putStringSet(KEY_SHOWN, shown).remove(KEY_LEGACY_ACTIVE).apply();
+        }
+        return shown;
+    }
+
+    public static void set(Context context, File gpxFile, boolean show) {
+        Set<String> shown = get(context);
+        boolean changed = show ? shown.add(gpxFile.getAbsolutePath()) : shown.remove(gpxFile.getAbsolutePath());
+        if (!changed) return;
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit().putStringSet(KEY_SHOWN, shown).apply();
+    }
+}
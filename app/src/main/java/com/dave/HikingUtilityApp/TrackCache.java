@@ -0,0 +1,101 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU of parsed tracks, so reopening a file that hasn't changed
+ * is a lookup instead of a parse.
+ *
+ * Entries are keyed by absolute path and only served while the file's
+ * lastModified and length still match. The cache is bounded by the memory
+ * the points occupy, not by entry count, so one huge route can't pin more
+ * than its share.
+ */
+public final class TrackCache {
+
+    public static final class Entry {
+        public final GPXTrack track;
+        public final TrackStats stats;
+
+        final long lastModified;
+        final long length;
+        final long bytes;
+
+        Entry(GPXTrack track, TrackStats stats, long lastModified, long length) {
+            this.track = track;
+            this.stats = stats;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.bytes = (long) track.points.size() * BYTES_PER_POINT;
+        }
+    }
+
+    // Four primitive columns per point in TrackBuffer
+    private static final int BYTES_PER_POINT = 32;
+
+    private static final long MAX_BYTES = Math.min(Runtime.getRuntime().maxMemory() / 8, 48L * 1024 * 1024);
+
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long totalBytes;
+
+    private TrackCache() {}
+
+    /**
+     * The cached track for {@code file}, or null if absent or the file changed since it was cached.
+     */
+    public static Entry get(File file) {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        synchronized (entries) {
+            Entry entry = entries.get(path);
+            if (entry == null) return null;
+            if (entry.lastModified != lastModified || entry.length != length) {
+                removeLocked(path);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    public static Entry put(File file, GPXTrack track, TrackStats stats) {
+        Entry entry = new Entry(track, stats, file.lastModified(), file.length());
+        if (entry.bytes > MAX_BYTES) return entry; // would evict everything else and still not fit
+
+        String path = file.getAbsolutePath();
+        synchronized (entries) {
+            removeLocked(path);
+            entries.put(path, entry);
+            totalBytes += entry.bytes;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > MAX_BYTES && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+            }
+        }
+        return entry;
+    }
+
+    public static void remove(File file) {
+        synchronized (entries) {
+            removeLocked(file.getAbsolutePath());
+        }
+    }
+
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    private static void removeLocked(String path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) totalBytes -= removed.bytes;
+    }
+}
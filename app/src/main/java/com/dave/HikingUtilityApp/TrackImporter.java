@@ -0,0 +1,332 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs GPX imports, saves and deletes on a background thread so large files never block the UI.
+ *
+ * Each import goes through the stages in {@link Stage}. Reading and parsing
+ * are streamed together, so parse progress is the share of bytes consumed.
+ * Progress and the result are posted back on the main thread, and nothing is
+ * delivered once {@link Task#cancel()} has been called.
+ */
+public class TrackImporter {
+
+    public enum Stage { READ, PARSE, STATS, PERSIST }
+
+    public interface Source {
+        InputStream open() throws IOException;
+
+        /** Total size in bytes, or -1 if unknown. Called on the import thread. */
+        default long length() {
+            return -1;
+        }
+    }
+
+    public interface Callback {
+        default void onProgress(Stage stage, int percent) {}
+
+        void onComplete(Result result);
+
+        void onError(Exception e);
+    }
+
+    public static class Result {
+        public final GPXTrack track;
+        public final TrackStats stats;
+        public final File savedFile; // null unless the import was persisted
+
+        Result(GPXTrack track, TrackStats stats, File savedFile) {
+            this.track = track;
+            this.stats = stats;
+            this.savedFile = savedFile;
+        }
+    }
+
+    public static class Task {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        public void cancel() {
+            cancelled = true;
+            if (future != null) future.cancel(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    // One import at a time; they are disk bound and a second one would only compete
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrackImporter");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<Task> activeTasks = Collections.synchronizedSet(new HashSet<>());
+
+    public TrackImporter(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * @param persist also save the track into the GPXTracks folder
+     */
+    public Task importTrack(Source source, boolean persist, Callback callback) {
+        return submit(source, null, persist, callback);
+    }
+
+    private Task submit(Source source, File cacheFile, boolean persist, Callback callback) {
+        Task task = new Task();
+        activeTasks.add(task);
+        task.future = executor.submit(() -> {
+            try {
+                run(task, source, cacheFile, persist, callback);
+            } finally {
+                activeTasks.remove(task);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Saves {@code track} into the GPXTracks folder, with its sidecar and index entry,
+     * on the import thread. The result's savedFile is the file written.
+     */
+    public Task saveTrack(GPXTrack track, Callback callback) {
+        Task task = new Task();
+        activeTasks.add(task);
+        task.future = executor.submit(() -> {
+            try {
+                progress(task, callback, Stage.PERSIST, 0);
+                File savedFile = new GPXManager(context).saveTrackToFile(track);
+                TrackStats stats = TrackStats.of(track.points);
+                TrackCache.put(savedFile, track, stats);
+                deliver(task, callback, new Result(track, stats, savedFile));
+            } catch (Exception e) {
+                fail(task, callback, e);
+            } finally {
+                activeTasks.remove(task);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Deletes a saved track with its sidecar, cache and index entries on the import
+     * thread, then tells {@code onDone} on the main thread whether the GPX file went.
+     */
+    public void deleteTrack(File gpxFile, Consumer<Boolean> onDone) {
+        executor.execute(() -> {
+            boolean deleted = gpxFile.delete();
+            if (deleted) {
+                TrackCache.remove(gpxFile);
+                TrackSidecar.delete(gpxFile);
+                TrackIndex.get(context).remove(gpxFile);
+                TrackSpatialIndex.get(context).remove(gpxFile);
+            }
+            mainHandler.post(() -> onDone.accept(deleted));
+        });
+    }
+
+    /**
+     * Cancels every import started through this importer, e.g. when its activity is destroyed.
+     */
+    public void cancelAll() {
+        Task[] tasks;
+        synchronized (activeTasks) {
+            tasks = activeTasks.toArray(new Task[0]);
+        }
+        for (Task task : tasks) task.cancel();
+    }
+
+    /**
+     * Like {@link #importTrack}, but served from {@link TrackCache} when the file hasn't changed.
+     */
+    public Task importFile(File file, boolean persist, Callback callback) {
+        return submit(new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+
+            @Override
+            public long length() {
+                return file.length();
+            }
+        }, file, persist, callback);
+    }
+
+    public Task importUri(Uri uri, boolean persist, Callback callback) {
+        return importTrack(new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                InputStream in = context.getContentResolver().openInputStream(uri);
+                if (in == null) throw new IOException("Cannot open " + uri);
+                return in;
+            }
+
+            @Override
+            public long length() {
+                try (AssetFileDescriptor fd = context.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+                    return fd != null ? fd.getLength() : -1;
+                } catch (Exception e) {
+                    return -1;
+                }
+            }
+        }, persist, callback);
+    }
+
+    private void run(Task task, Source source, File cacheFile, boolean persist, Callback callback) {
+        try {
+            if (cacheFile != null && !persist) {
+                TrackCache.Entry cached = TrackCache.get(cacheFile);
+                if (cached == null) cached = loadSidecar(cacheFile);
+                if (cached != null) {
+                    deliver(task, callback, new Result(cached.track, cached.stats, null));
+                    return;
+                }
+            }
+
+            GPXManager gpxManager = new GPXManager(context);
+
+            progress(task, callback, Stage.READ, 0);
+            GPXTrack track;
+            try (InputStream in = new ProgressInputStream(source.open(), source.length(), task, callback)) {
+                track = gpxManager.importGPXFromUri(in);
+            }
+
+            progress(task, callback, Stage.STATS, 0);
+            TrackStats stats = TrackStats.of(track.points);
+
+            if (cacheFile != null) {
+                TrackCache.put(cacheFile, track, stats);
+                GPXManager.writeSidecar(cacheFile, track, stats); // next time skips the parse
+            }
+
+            File savedFile = null;
+            if (persist && !track.points.isEmpty()) {
+                checkCancelled(task);
+                progress(task, callback, Stage.PERSIST, 0);
+                savedFile = gpxManager.saveTrackToFile(track);
+                TrackCache.put(savedFile, track, stats);
+            }
+
+            deliver(task, callback, new Result(track, stats, savedFile));
+        } catch (Exception e) {
+            fail(task, callback, e);
+        }
+    }
+
+    /**
+     * Blocking load of a saved track for callers already off the main thread:
+     * the cache, then the sidecar, then a full parse.
+     */
+    static TrackCache.Entry load(Context context, File file) throws Exception {
+        TrackCache.Entry entry = TrackCache.get(file);
+        if (entry == null) entry = loadSidecar(file);
+        if (entry != null) return entry;
+
+        GPXTrack track = new GPXManager(context).importGPXFromFile(file.getAbsolutePath());
+        TrackStats stats = TrackStats.of(track.points);
+        GPXManager.writeSidecar(file, track, stats);
+        return TrackCache.put(file, track, stats);
+    }
+
+    private static TrackCache.Entry loadSidecar(File file) {
+        try {
+            TrackSidecar.Contents contents = TrackSidecar.readContents(file);
+            return contents != null ? TrackCache.put(file, contents.track, contents.stats) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void deliver(Task task, Callback callback, Result result) {
+        mainHandler.post(() -> {
+            if (!task.cancelled) callback.onComplete(result);
+        });
+    }
+
+    private void fail(Task task, Callback callback, Exception e) {
+        if (task.cancelled) return;
+        mainHandler.post(() -> {
+            if (!task.cancelled) callback.onError(e);
+        });
+    }
+
+    private void progress(Task task, Callback callback, Stage stage, int percent) {
+        mainHandler.post(() -> {
+            if (!task.cancelled) callback.onProgress(stage, percent);
+        });
+    }
+
+    private static void checkCancelled(Task task) throws InterruptedIOException {
+        if (task.cancelled || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Import cancelled");
+        }
+    }
+
+    // Counts bytes for parse progress and aborts the parse as soon as the task is cancelled
+    private class ProgressInputStream extends FilterInputStream {
+        private final long length;
+        private final Task task;
+        private final Callback callback;
+        private long consumed;
+        private int lastPercent = -1;
+
+        ProgressInputStream(InputStream in, long length, Task task, Callback callback) {
+            super(in);
+            this.length = length;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkCancelled(task);
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            checkCancelled(task);
+            int n = super.read(buffer, offset, count);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(int n) {
+            consumed += n;
+            if (length <= 0) return;
+            int percent = (int) Math.min(100, consumed * 100 / length);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                progress(task, callback, Stage.PARSE, percent);
+            }
+        }
+    }
+}
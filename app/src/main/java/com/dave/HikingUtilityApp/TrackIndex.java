@@ -0,0 +1,291 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent summary of every track in the GPXTracks folder, so the library
+ * can be listed with stats without opening a single GPX file.
+ *
+ * Saves, imports and deletes update the index as they happen. {@link #refreshAsync}
+ * catches anything changed behind the app's back; it only opens files whose
+ * length or lastModified moved, preferring the .trk sidecar header over a
+ * full parse. The saved index itself is read in the background too, so
+ * {@link #getEntries} may come back empty until the first refresh reports in.
+ */
+public class TrackIndex {
+
+    public static final class Entry {
+        public final File file;
+        public final String name;
+        public final long lastModified;
+        public final long length;
+        public final int pointCount;
+        public final double distance;
+        public final long duration;
+        public final double elevationGain;
+        public final double minLatitude;
+        public final double minLongitude;
+        public final double maxLatitude;
+        public final double maxLongitude;
+
+        Entry(File file, int pointCount, double distance, long duration, double elevationGain,
+              double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            this(file, file.lastModified(), file.length(), pointCount, distance, duration, elevationGain,
+                    minLatitude, minLongitude, maxLatitude, maxLongitude);
+        }
+
+        Entry(File file, long lastModified, long length, int pointCount, double distance, long duration,
+              double elevationGain, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            this.file = file;
+            this.name = file.getName().replace(".gpx", "");
+            this.lastModified = lastModified;
+            this.length = length;
+            this.pointCount = pointCount;
+            this.distance = distance;
+            this.duration = duration;
+            this.elevationGain = elevationGain;
+            this.minLatitude = minLatitude;
+            this.minLongitude = minLongitude;
+            this.maxLatitude = maxLatitude;
+            this.maxLongitude = maxLongitude;
+        }
+
+        /** False while the file is listed but not yet summarized, or couldn't be read last time. */
+        public boolean hasStats() {
+            return pointCount >= 0;
+        }
+
+        public boolean isUnreadable() {
+            return pointCount == UNREADABLE;
+        }
+
+        boolean matches(File f) {
+            return f.lastModified() == lastModified && f.length() == length;
+        }
+    }
+
+    // pointCount markers for entries without stats; both are summarized again on the next refresh
+    private static final int PENDING = -1;
+    private static final int UNREADABLE = -2;
+
+    private static final String INDEX_FILE = "track_index.dat";
+    private static final int MAGIC = 0x48544958; // "HTIX"
+    private static final int VERSION = 1;
+
+    // Batch row updates while stats are being filled in
+    private static final long STATS_NOTIFY_NANOS = 250_000_000L;
+
+    private static TrackIndex instance;
+
+    private final Context context;
+    private final File folder;
+    private final File indexFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Refreshes and index writes, in order, off the main thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrackIndex");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public static synchronized TrackIndex get(Context context) {
+        if (instance == null) instance = new TrackIndex(context.getApplicationContext());
+        return instance;
+    }
+
+    private TrackIndex(Context context) {
+        this.context = context;
+        this.folder = new File(HikingApplication.externalFilesDir(context), "GPXTracks");
+        this.indexFile = new File(HikingApplication.filesDir(context), INDEX_FILE);
+        // First on the index thread, so refreshes and saves always see the loaded index
+        executor.execute(this::load);
+    }
+
+    /**
+     * Indexed tracks, newest first.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list;
+        synchronized (entries) {
+            list = new ArrayList<>(entries.values());
+        }
+        Collections.sort(list, (e1, e2) -> Long.compare(e2.lastModified, e1.lastModified));
+        return list;
+    }
+
+    /**
+     * Records a GPX file that was just written, using totals the writer already had.
+     */
+    public void put(File gpxFile, TrackStats stats) {
+        put(new Entry(gpxFile, stats.getPointCount(), stats.getTotalDistance(), stats.getDuration(),
+                stats.getElevationGain(), stats.getMinLatitude(), stats.getMinLongitude(),
+                stats.getMaxLatitude(), stats.getMaxLongitude()));
+    }
+
+    public void remove(File gpxFile) {
+        synchronized (entries) {
+            if (entries.remove(gpxFile.getName()) == null) return;
+        }
+        saveAsync();
+    }
+
+    /**
+     * Brings the index in line with the folder in the background. {@code onChanged}
+     * runs on the main thread once new and removed files are known (new ones
+     * without stats yet), even if there were none, and again as their stats are
+     * filled in.
+     */
+    public void refreshAsync(Runnable onChanged) {
+        executor.execute(() -> refresh(() -> mainHandler.post(onChanged)));
+    }
+
+    private void refresh(Runnable onChanged) {
+        File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".gpx"));
+        if (files == null) files = new File[0];
+
+        // Pass 1: cheap stat calls only, so the list is complete straight away
+        List<File> pending = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        boolean changed;
+        synchronized (entries) {
+            for (File file : files) {
+                present.add(file.getName());
+                Entry existing = entries.get(file.getName());
+                if (existing != null && existing.hasStats() && existing.matches(file)) continue;
+                entries.put(file.getName(), new Entry(file, PENDING, 0, 0, 0, 0, 0, 0, 0));
+                pending.add(file);
+            }
+            changed = entries.keySet().retainAll(present);
+        }
+        // Also when nothing changed: the saved index may only just have been loaded
+        onChanged.run();
+        if (!changed && pending.isEmpty()) return;
+
+        // Pass 2: stats, newest files first since they sit at the top of the list
+        Collections.sort(pending, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+        long lastNotify = System.nanoTime();
+        for (int i = 0; i < pending.size(); i++) {
+            File file = pending.get(i);
+            Entry entry = summarize(file);
+            synchronized (entries) {
+                // Leave it alone if it was deleted or re-saved meanwhile
+                Entry current = entries.get(file.getName());
+                if (current != null && !current.hasStats()) entries.put(file.getName(), entry);
+            }
+            if (System.nanoTime() - lastNotify > STATS_NOTIFY_NANOS || i == pending.size() - 1) {
+                onChanged.run();
+                lastNotify = System.nanoTime();
+            }
+        }
+        save();
+    }
+
+    private void put(Entry entry) {
+        synchronized (entries) {
+            entries.put(entry.file.getName(), entry);
+        }
+        saveAsync();
+    }
+
+    // Sidecar header if it's current, otherwise a full parse (which leaves a sidecar behind)
+    private Entry summarize(File file) {
+        try {
+            TrackSidecar.Header header = TrackSidecar.readHeader(file);
+            if (header != null) {
+                return new Entry(file, header.pointCount, header.distance, header.duration, header.elevationGain,
+                        header.minLatitude, header.minLongitude, header.maxLatitude, header.maxLongitude);
+            }
+
+            GPXTrack track = new GPXManager(context).importGPXFromFile(file.getAbsolutePath());
+            TrackStats stats = TrackStats.of(track.points);
+            GPXManager.writeSidecar(file, track, stats);
+            return new Entry(file, stats.getPointCount(), stats.getTotalDistance(), stats.getDuration(),
+                    stats.getElevationGain(), stats.getMinLatitude(), stats.getMinLongitude(),
+                    stats.getMaxLatitude(), stats.getMaxLongitude());
+        } catch (Exception e) {
+            // Unreadable file: list it without stats rather than hide it, and try again next refresh
+            return new Entry(file, UNREADABLE, 0, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) return;
+
+        Map<String, Entry> loaded = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                File file = new File(folder, in.readUTF());
+                Entry entry = new Entry(file, in.readLong(), in.readLong(), in.readInt(), in.readDouble(),
+                        in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble());
+                loaded.put(file.getName(), entry);
+            }
+        } catch (IOException e) {
+            // Corrupt or partial index: start over, refreshAsync() rebuilds it
+            return;
+        }
+        synchronized (entries) {
+            // Anything put() while this was loading is newer
+            for (Entry entry : loaded.values()) entries.putIfAbsent(entry.file.getName(), entry);
+        }
+    }
+
+    private void saveAsync() {
+        executor.execute(this::save);
+    }
+
+    private void save() {
+        List<Entry> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+
+        File temp = new File(indexFile.getParentFile(), INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Entry entry : snapshot) {
+                out.writeUTF(entry.file.getName());
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.length);
+                out.writeInt(entry.pointCount);
+                out.writeDouble(entry.distance);
+                out.writeLong(entry.duration);
+                out.writeDouble(entry.elevationGain);
+                out.writeDouble(entry.minLatitude);
+                out.writeDouble(entry.minLongitude);
+                out.writeDouble(entry.maxLatitude);
+                out.writeDouble(entry.maxLongitude);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        temp.renameTo(indexFile);
+    }
+}
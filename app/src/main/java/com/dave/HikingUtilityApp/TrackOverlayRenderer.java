@@ -0,0 +1,275 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.maplibre.android.maps.Style;
+import org.maplibre.android.style.layers.LineLayer;
+import org.maplibre.android.style.layers.PropertyFactory;
+import org.maplibre.android.style.sources.GeoJsonSource;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.Point;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Draws any number of saved tracks at once through a single source and layer.
+ *
+ * Only tracks whose segments fall in (or just around) the viewport are drawn,
+ * as found by {@link TrackSpatialIndex}. Zoomed out, they are drawn from the
+ * index's own simplified shapes, which are already in memory. Zoomed in past
+ * what those shapes can show, the full tracks in view are loaded in the
+ * background, simplified with {@link TrackSimplifier} and dropped again once
+ * they leave the viewport. The vertex count pushed to the map is capped, so a
+ * whole season of hikes costs about the same to draw as a handful.
+ */
+public class TrackOverlayRenderer {
+
+    // Extra fraction of the viewport on each side, so small pans don't reload anything
+    private static final double VIEWPORT_MARGIN = 0.5;
+
+    // Vertices per render across all tracks; coarser levels are used past it
+    private static final int MAX_RENDERED_POINTS = 50_000;
+
+    // Full tracks held at once; further ones in view are drawn from their shapes
+    private static final int MAX_LOADED_TRACKS = 16;
+
+    // Lets a burst of finished loads share one render
+    private static final long RENDER_DELAY_MS = 100;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrackOverlay");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private static final class LoadedTrack {
+        final TrackView points;
+        final TrackSimplifier simplifier;
+
+        LoadedTrack(TrackView points, TrackSimplifier simplifier) {
+            this.points = points;
+            this.simplifier = simplifier;
+        }
+    }
+
+    private final Context context;
+    private final String sourceId;
+    private final String layerId;
+    private final String color;
+    private final float width;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable renderRunnable = this::render;
+
+    // Everything below is touched on the main thread only, except wantedDetail (read by loads)
+    private Style style;
+    private Map<String, File> shown = Collections.emptyMap(); // by file name
+    private double south, west, north, east, zoom;
+    private boolean hasViewport;
+    private List<TrackSpatialIndex.Shape> visible = Collections.emptyList();
+    private volatile Set<String> wantedDetail = Collections.emptySet();
+    private final Map<String, LoadedTrack> loaded = new HashMap<>();
+    private final Set<String> loading = new HashSet<>();
+    private boolean renderPending;
+    private boolean released;
+
+    public TrackOverlayRenderer(Context context, String sourceId, String layerId, String color, float width) {
+        this.context = context.getApplicationContext();
+        this.sourceId = sourceId;
+        this.layerId = layerId;
+        this.color = color;
+        this.width = width;
+    }
+
+    /**
+     * Adds the shared source and layer to a freshly loaded style.
+     */
+    public void attach(Style style) {
+        this.style = style;
+        if (style.getSource(sourceId) == null) {
+            style.addSource(new GeoJsonSource(sourceId, FeatureCollection.fromFeatures(new ArrayList<>())));
+            style.addLayer(new LineLayer(layerId, sourceId).withProperties(
+                    PropertyFactory.lineColor(color),
+                    PropertyFactory.lineWidth(width)
+            ));
+        }
+        refresh();
+    }
+
+    /**
+     * The GPX files toggled on, by absolute path.
+     */
+    public void setShownTracks(Set<String> paths) {
+        Map<String, File> next = new HashMap<>();
+        for (String path : paths) {
+            File file = new File(path);
+            next.put(file.getName(), file);
+        }
+        shown = next;
+        refresh();
+    }
+
+    public void setViewport(double south, double west, double north, double east, double zoom) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        this.zoom = zoom;
+        hasViewport = true;
+        refresh();
+    }
+
+    /**
+     * Works out which tracks are in view, loads or drops full tracks to match and redraws.
+     */
+    public void refresh() {
+        if (released || style == null || !hasViewport) return;
+
+        List<TrackSpatialIndex.Shape> inView = new ArrayList<>();
+        if (!shown.isEmpty()) {
+            double latMargin = (north - south) * VIEWPORT_MARGIN;
+            double lonMargin = (east - west) * VIEWPORT_MARGIN;
+            for (TrackSpatialIndex.Shape shape : TrackSpatialIndex.get(context)
+                    .queryShapes(south - latMargin, west - lonMargin, north + latMargin, east + lonMargin)) {
+                if (shown.containsKey(shape.fileName)) inView.add(shape);
+            }
+        }
+        visible = inView;
+
+        Set<String> detail = new HashSet<>();
+        if (needsDetail()) {
+            for (TrackSpatialIndex.Shape shape : inView) {
+                if (detail.size() == MAX_LOADED_TRACKS) break;
+                detail.add(shape.fileName);
+            }
+        }
+        wantedDetail = detail;
+
+        // Dropped tracks may still sit in TrackCache, which has its own memory bound
+        loaded.keySet().retainAll(detail);
+        for (String fileName : detail) {
+            if (!loaded.containsKey(fileName) && loading.add(fileName)) load(fileName, shown.get(fileName));
+        }
+
+        mainHandler.removeCallbacks(renderRunnable);
+        render();
+    }
+
+    /**
+     * Stops drawing and ignores loads still in flight; call from onDestroy.
+     */
+    public void release() {
+        released = true;
+        wantedDetail = Collections.emptySet();
+        mainHandler.removeCallbacks(renderRunnable);
+        loaded.clear();
+        style = null;
+    }
+
+    // The index keeps shapes to SHAPE_TOLERANCE_METERS; past the zoom where that shows, load the real thing
+    private boolean needsDetail() {
+        double metersPerPixel = TrackSimplifier.metersPerPixel(zoom, (south + north) / 2);
+        return metersPerPixel * TrackSimplifier.TOLERANCE_PIXELS < TrackSpatialIndex.SHAPE_TOLERANCE_METERS;
+    }
+
+    private void load(String fileName, File file) {
+        executor.execute(() -> {
+            LoadedTrack track = null;
+            // Skip loads the camera has already moved away from
+            if (wantedDetail.contains(fileName)) {
+                try {
+                    TrackView points = TrackImporter.load(context, file).track.points;
+                    if (!points.isEmpty()) track = new LoadedTrack(points, new TrackSimplifier(points));
+                } catch (Exception e) {
+                    // Unreadable: keep drawing its shape
+                }
+            }
+
+            LoadedTrack result = track;
+            mainHandler.post(() -> {
+                loading.remove(fileName);
+                if (released || result == null || !wantedDetail.contains(fileName)) return;
+                loaded.put(fileName, result);
+                scheduleRender();
+            });
+        });
+    }
+
+    private void scheduleRender() {
+        if (renderPending) return;
+        renderPending = true;
+        mainHandler.postDelayed(renderRunnable, RENDER_DELAY_MS);
+    }
+
+    private void render() {
+        renderPending = false;
+        if (released || style == null) return;
+        GeoJsonSource source = style.getSourceAs(sourceId);
+        if (source == null) return;
+
+        double latitude = (south + north) / 2;
+        List<Feature> features = new ArrayList<>();
+        for (int z = (int) Math.ceil(zoom); ; z--) {
+            double tolerance = TrackSimplifier.metersPerPixel(z, latitude) * TrackSimplifier.TOLERANCE_PIXELS;
+            features.clear();
+            int total = 0;
+            for (TrackSpatialIndex.Shape shape : visible) {
+                LoadedTrack track = loaded.get(shape.fileName);
+                List<Point> line = track != null
+                        ? toLinePoints(track.points, track.simplifier.getLevel(z))
+                        : thin(shape, tolerance);
+                if (line.size() < 2) continue;
+                total += line.size();
+                features.add(Feature.fromGeometry(LineString.fromLngLats(line)));
+            }
+            if (total <= MAX_RENDERED_POINTS || z <= 0) break;
+        }
+        source.setGeoJson(FeatureCollection.fromFeatures(features));
+    }
+
+    private static List<Point> toLinePoints(TrackView points, int[] indices) {
+        List<Point> linePoints = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            linePoints.add(Point.fromLngLat(points.getLongitude(i), points.getLatitude(i)));
+        }
+        return linePoints;
+    }
+
+    // Shapes are already simplified; when zoomed further out, skipping vertices
+    // closer than the tolerance to the last kept one is enough
+    private static List<Point> thin(TrackSpatialIndex.Shape shape, double tolerance) {
+        float[] latitudes = shape.latitudes;
+        float[] longitudes = shape.longitudes;
+        int n = latitudes.length;
+        List<Point> linePoints = new ArrayList<>();
+        if (n == 0) return linePoints;
+
+        double toleranceDegrees = tolerance / TrackSpatialIndex.METERS_PER_DEGREE;
+        double limit = toleranceDegrees * toleranceDegrees;
+        double cosLat = Math.cos(Math.toRadians(latitudes[0]));
+
+        int last = 0;
+        linePoints.add(Point.fromLngLat(longitudes[0], latitudes[0]));
+        for (int i = 1; i < n - 1; i++) {
+            double dLat = latitudes[i] - latitudes[last];
+            double dLon = (longitudes[i] - longitudes[last]) * cosLat;
+            if (dLat * dLat + dLon * dLon < limit) continue;
+            linePoints.add(Point.fromLngLat(longitudes[i], latitudes[i]));
+            last = i;
+        }
+        if (n > 1) linePoints.add(Point.fromLngLat(longitudes[n - 1], latitudes[n - 1]));
+        return linePoints;
+    }
+}
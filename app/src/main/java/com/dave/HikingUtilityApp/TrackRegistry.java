@@ -0,0 +1,54 @@
+package com.dave.HikingUtilityApp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Process-local hand-off for parsed tracks between activities.
+ *
+ * An Intent only carries the ID returned by {@link #put}; the points stay in
+ * memory, so a track of any length reaches the map without going through the
+ * Binder or being parsed again. Only the last few tracks are kept. If the
+ * process was killed in between, {@link #get} returns null and the caller
+ * falls back to loading from disk. IDs are random rather than counted, so an
+ * ID restored from an Intent after process death never names another track.
+ */
+public final class TrackRegistry {
+
+    public static final String EXTRA_TRACK_ID = "track_id";
+
+    private static final int MAX_TRACKS = 4;
+
+    private static final Map<String, GPXTrack> tracks =
+            new LinkedHashMap<String, GPXTrack>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, GPXTrack> eldest) {
+                    return size() > MAX_TRACKS;
+                }
+            };
+
+    private TrackRegistry() {}
+
+    public static String put(GPXTrack track) {
+        String id = UUID.randomUUID().toString();
+        synchronized (tracks) {
+            tracks.put(id, track);
+        }
+        return id;
+    }
+
+    public static GPXTrack get(String id) {
+        if (id == null) return null;
+        synchronized (tracks) {
+            return tracks.get(id);
+        }
+    }
+
+    public static void release(String id) {
+        if (id == null) return;
+        synchronized (tracks) {
+            tracks.remove(id);
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.dave.HikingUtilityApp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers "which saved tracks are in this viewport" and "which track is
+ * nearest to here" without opening any GPX file.
+ *
+ * Every track is kept as a shape simplified to {@link #SHAPE_TOLERANCE_METERS},
+ * and each segment of each shape is registered in the cells of a fixed
+ * lat/lon grid it passes through. A query only looks at the cells it covers;
+ * one covering more than {@link #MAX_QUERY_CELLS} tests the tracks' bounding
+ * boxes instead. The few segments crossing more than {@link #MAX_SEGMENT_CELLS} cells, such
+ * as a straight line over a GPS gap, are kept in one list every query checks.
+ *
+ * The shapes are persisted next to the GPXTracks folder; the grid is rebuilt
+ * from them. Readers use an immutable {@link Grid} swapped in on every change,
+ * so queries from the UI thread never wait on an update.
+ */
+public class TrackSpatialIndex {
+
+    public static final class Nearest {
+        public final File file;
+        public final double distance; // meters
+
+        Nearest(File file, double distance) {
+            this.file = file;
+            this.distance = distance;
+        }
+    }
+
+    // Simplified copy of one track; float precision is about a metre, plenty here
+    static final class Shape {
+        final String fileName;
+        final long lastModified;
+        final long length;
+        final float[] latitudes;
+        final float[] longitudes;
+        final double minLatitude, minLongitude, maxLatitude, maxLongitude;
+
+        Shape(String fileName, long lastModified, long length, float[] latitudes, float[] longitudes) {
+            this.fileName = fileName;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+
+            double minLat = 90, minLon = 180, maxLat = -90, maxLon = -180;
+            for (int i = 0; i < latitudes.length; i++) {
+                minLat = Math.min(minLat, latitudes[i]);
+                maxLat = Math.max(maxLat, latitudes[i]);
+                minLon = Math.min(minLon, longitudes[i]);
+                maxLon = Math.max(maxLon, longitudes[i]);
+            }
+            this.minLatitude = minLat;
+            this.minLongitude = minLon;
+            this.maxLatitude = maxLat;
+            this.maxLongitude = maxLon;
+        }
+
+        boolean matches(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+    // Shapes plus the cell -> (shape, segment) table built over them. Never modified once built.
+    private static final class Grid {
+        final Shape[] shapes;
+        final Map<Long, int[]> cells;
+        final int[] oversized; // (shape, segment) pairs too long to register cell by cell
+
+        Grid(Shape[] shapes) {
+            this.shapes = shapes;
+
+            Map<Long, CellBuilder> building = new HashMap<>();
+            CellBuilder oversizedBuilder = new CellBuilder();
+            for (int s = 0; s < shapes.length; s++) {
+                Shape shape = shapes[s];
+                for (int i = 0; i + 1 < shape.latitudes.length; i++) {
+                    double lat1 = shape.latitudes[i], lon1 = shape.longitudes[i];
+                    double lat2 = shape.latitudes[i + 1], lon2 = shape.longitudes[i + 1];
+                    long crossed = Math.abs((long) row(lat2) - row(lat1)) + Math.abs((long) column(lon2) - column(lon1)) + 1;
+                    if (crossed > MAX_SEGMENT_CELLS) oversizedBuilder.add(s, i);
+                    else if (lon1 <= lon2) addSegment(building, s, i, lat1, lon1, lat2, lon2);
+                    else addSegment(building, s, i, lat2, lon2, lat1, lon1);
+                }
+            }
+
+            Map<Long, int[]> built = new HashMap<>(building.size() * 2);
+            for (Map.Entry<Long, CellBuilder> cell : building.entrySet()) {
+                built.put(cell.getKey(), Arrays.copyOf(cell.getValue().entries, cell.getValue().size));
+            }
+            this.cells = built;
+            this.oversized = Arrays.copyOf(oversizedBuilder.entries, oversizedBuilder.size);
+        }
+
+        // Walks the segment column by column (west to east, so lon1 <= lon2) and adds
+        // the rows between where it enters and leaves each column
+        private static void addSegment(Map<Long, CellBuilder> building, int s, int i,
+                                       double lat1, double lon1, double lat2, double lon2) {
+            int col0 = column(lon1), col1 = column(lon2);
+            double slope = col0 < col1 ? (lat2 - lat1) / (lon2 - lon1) : 0;
+            for (int col = col0; col <= col1; col++) {
+                double enter = col == col0 ? lat1 : lat1 + slope * (col * CELL_DEGREES - lon1);
+                double leave = col == col1 ? lat2 : lat1 + slope * ((col + 1) * CELL_DEGREES - lon1);
+                for (int row = row(Math.min(enter, leave)); row <= row(Math.max(enter, leave)); row++) {
+                    CellBuilder cell = building.get(key(row, col));
+                    if (cell == null) building.put(key(row, col), cell = new CellBuilder());
+                    cell.add(s, i);
+                }
+            }
+        }
+    }
+
+    private static final class CellBuilder {
+        int[] entries = new int[8];
+        int size;
+
+        void add(int shape, int segment) {
+            if (size + 2 > entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+            entries[size++] = shape;
+            entries[size++] = segment;
+        }
+    }
+
+    private static final String SHAPES_FILE = "track_shapes.dat";
+    private static final int MAGIC = 0x48545348; // "HTSH"
+    private static final int VERSION = 1;
+
+    static final double SHAPE_TOLERANCE_METERS = 10;
+    private static final double CELL_DEGREES = 0.01; // about 1.1 km of latitude
+    static final double METERS_PER_DEGREE = 111_320;
+
+    // Past this many cells, testing every track's bounding box is cheaper than walking the grid
+    static final int MAX_QUERY_CELLS = 4096;
+
+    // Name length, lastModified, length and point count
+    private static final int MIN_SHAPE_BYTES = 2 + 8 + 8 + 4;
+    private static final int POINT_BYTES = 8;
+
+    // About 280 km; longer segments aren't put in the grid but checked by every query
+    static final int MAX_SEGMENT_CELLS = 256;
+
+    private static TrackSpatialIndex instance;
+
+    private final Context context;
+    private final File folder;
+    private final File shapesFile;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrackSpatialIndex");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private volatile Grid grid = new Grid(new Shape[0]);
+    private final Map<String, Shape> pending = new HashMap<>(); // null value = removed
+
+    public static synchronized TrackSpatialIndex get(Context context) {
+        if (instance == null) instance = new TrackSpatialIndex(context.getApplicationContext());
+        return instance;
+    }
+
+    TrackSpatialIndex(Context context) {
+        this.context = context;
+        this.folder = new File(HikingApplication.externalFilesDir(context), "GPXTracks");
+        this.shapesFile = new File(HikingApplication.externalFilesDir(context), SHAPES_FILE);
+        executor.execute(this::load);
+    }
+
+    /**
+     * Saved tracks with at least one segment in the given box.
+     */
+    public List<File> queryViewport(double south, double west, double north, double east) {
+        List<File> result = new ArrayList<>();
+        for (Shape shape : queryShapes(south, west, north, east)) result.add(new File(folder, shape.fileName));
+        return result;
+    }
+
+    /**
+     * Like {@link #queryViewport}, but hands back the simplified shapes themselves.
+     */
+    List<Shape> queryShapes(double south, double west, double north, double east) {
+        Grid g = grid;
+        List<Shape> result = new ArrayList<>();
+
+        long rows = (long) row(north) - row(south) + 1;
+        long columns = (long) column(east) - column(west) + 1;
+        if (rows * columns > MAX_QUERY_CELLS) {
+            for (Shape shape : g.shapes) {
+                if (shape.maxLatitude >= south && shape.minLatitude <= north
+                        && shape.maxLongitude >= west && shape.minLongitude <= east) {
+                    result.add(shape);
+                }
+            }
+            return result;
+        }
+
+        boolean[] seen = new boolean[g.shapes.length];
+        for (int row = row(south); row <= row(north); row++) {
+            for (int col = column(west); col <= column(east); col++) {
+                int[] entries = g.cells.get(key(row, col));
+                if (entries == null) continue;
+                for (int i = 0; i < entries.length; i += 2) {
+                    int s = entries[i];
+                    if (seen[s]) continue;
+                    seen[s] = true;
+                    result.add(g.shapes[s]);
+                }
+            }
+        }
+        for (int i = 0; i < g.oversized.length; i += 2) {
+            int s = g.oversized[i];
+            if (seen[s]) continue;
+            Shape shape = g.shapes[s];
+            int seg = g.oversized[i + 1];
+            if (Math.max(shape.latitudes[seg], shape.latitudes[seg + 1]) >= south
+                    && Math.min(shape.latitudes[seg], shape.latitudes[seg + 1]) <= north
+                    && Math.max(shape.longitudes[seg], shape.longitudes[seg + 1]) >= west
+                    && Math.min(shape.longitudes[seg], shape.longitudes[seg + 1]) <= east) {
+                seen[s] = true;
+                result.add(shape);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The saved track passing closest to the given point, or null if none is within {@code maxDistance} meters.
+     */
+    public Nearest nearest(double latitude, double longitude, double maxDistance) {
+        Grid g = grid;
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double latSpan = maxDistance / METERS_PER_DEGREE;
+        double lonSpan = maxDistance / (METERS_PER_DEGREE * Math.max(cosLat, 0.01));
+
+        long rows = (long) row(latitude + latSpan) - row(latitude - latSpan) + 1;
+        long columns = (long) column(longitude + lonSpan) - column(longitude - lonSpan) + 1;
+        if (rows * columns > MAX_QUERY_CELLS) {
+            return nearestByBounds(g, latitude, longitude, cosLat, latSpan, lonSpan, maxDistance);
+        }
+
+        List<int[]> candidates = new ArrayList<>();
+        for (int row = row(latitude - latSpan); row <= row(latitude + latSpan); row++) {
+            for (int col = column(longitude - lonSpan); col <= column(longitude + lonSpan); col++) {
+                int[] entries = g.cells.get(key(row, col));
+                if (entries != null) candidates.add(entries);
+            }
+        }
+        candidates.add(g.oversized);
+
+        int bestShape = -1;
+        double bestDistance = maxDistance;
+        for (int[] entries : candidates) {
+            for (int i = 0; i < entries.length; i += 2) {
+                double d = segmentDistance(latitude, longitude, cosLat, g.shapes[entries[i]], entries[i + 1]);
+                if (d <= bestDistance) {
+                    bestDistance = d;
+                    bestShape = entries[i];
+                }
+            }
+        }
+        return bestShape < 0 ? null : new Nearest(new File(folder, g.shapes[bestShape].fileName), bestDistance);
+    }
+
+    // For a radius too wide for the grid: every segment of the tracks whose bounding box is in reach
+    private Nearest nearestByBounds(Grid g, double latitude, double longitude, double cosLat,
+                                    double latSpan, double lonSpan, double maxDistance) {
+        Shape best = null;
+        double bestDistance = maxDistance;
+        for (Shape shape : g.shapes) {
+            if (shape.maxLatitude < latitude - latSpan || shape.minLatitude > latitude + latSpan
+                    || shape.maxLongitude < longitude - lonSpan || shape.minLongitude > longitude + lonSpan) {
+                continue;
+            }
+            for (int seg = 0; seg + 1 < shape.latitudes.length; seg++) {
+                double d = segmentDistance(latitude, longitude, cosLat, shape, seg);
+                if (d <= bestDistance) {
+                    bestDistance = d;
+                    best = shape;
+                }
+            }
+        }
+        return best == null ? null : new Nearest(new File(folder, best.fileName), bestDistance);
+    }
+
+    /**
+     * Adds or replaces a GPX file that was just written from {@code points}.
+     */
+    public void put(File gpxFile, TrackView points) {
+        enqueue(gpxFile.getName(), toShape(gpxFile, points));
+    }
+
+    public void remove(File gpxFile) {
+        enqueue(gpxFile.getName(), null);
+    }
+
+    // Changes are batched so a burst of saves rebuilds the grid once, not once per track
+    private void enqueue(String fileName, Shape shape) {
+        boolean first;
+        synchronized (pending) {
+            first = pending.isEmpty();
+            pending.put(fileName, shape);
+        }
+        if (first) executor.execute(this::applyPending);
+    }
+
+    private void applyPending() {
+        Map<String, Shape> changes = takePending();
+        // Already taken by a refresh
+        if (changes.isEmpty()) return;
+
+        List<Shape> shapes = new ArrayList<>();
+        for (Shape existing : grid.shapes) {
+            if (!changes.containsKey(existing.fileName)) shapes.add(existing);
+        }
+        for (Shape shape : changes.values()) {
+            if (shape != null) shapes.add(shape);
+        }
+        grid = new Grid(shapes.toArray(new Shape[0]));
+        save();
+    }
+
+    private Map<String, Shape> takePending() {
+        synchronized (pending) {
+            Map<String, Shape> changes = new HashMap<>(pending);
+            pending.clear();
+            return changes;
+        }
+    }
+
+    /**
+     * Runs {@code onReady} on the main thread once the persisted shapes are loaded
+     * and any changes queued so far are applied.
+     */
+    public void whenReady(Runnable onReady) {
+        executor.execute(() -> mainHandler.post(onReady));
+    }
+
+    /**
+     * Adds shapes for files the index hasn't seen and drops deleted ones, then
+     * calls {@code onChanged} on the main thread if anything moved.
+     */
+    public void refreshAsync(Runnable onChanged) {
+        executor.execute(() -> {
+            File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".gpx"));
+            if (files == null) files = new File[0];
+
+            Map<String, Shape> current = new HashMap<>();
+            for (Shape shape : grid.shapes) current.put(shape.fileName, shape);
+            // Queued puts are newer than the grid, and spare re-reading their files
+            Map<String, Shape> changes = takePending();
+            for (Map.Entry<String, Shape> change : changes.entrySet()) {
+                if (change.getValue() != null) current.put(change.getKey(), change.getValue());
+                else current.remove(change.getKey());
+            }
+
+            boolean changed = !changes.isEmpty();
+            Set<String> present = new HashSet<>();
+            List<Shape> shapes = new ArrayList<>();
+            for (File file : files) {
+                present.add(file.getName());
+                Shape shape = current.get(file.getName());
+                if (shape == null || !shape.matches(file)) {
+                    shape = loadShape(file);
+                    changed = true;
+                }
+                if (shape != null) shapes.add(shape);
+            }
+            changed |= !present.containsAll(current.keySet());
+
+            if (!changed) return;
+            grid = new Grid(shapes.toArray(new Shape[0]));
+            save();
+            if (onChanged != null) mainHandler.post(onChanged);
+        });
+    }
+
+    private Shape loadShape(File file) {
+        try {
+            GPXTrack track = TrackSidecar.read(file);
+            if (track == null) track = new GPXManager(context).importGPXFromFile(file.getAbsolutePath());
+            return toShape(file, track.points);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Shape toShape(File file, TrackView points) {
+        int[] kept = points.size() > 0
+                ? TrackSimplifier.simplify(points, 0, points.size() - 1, SHAPE_TOLERANCE_METERS)
+                : new int[0];
+        float[] latitudes = new float[kept.length];
+        float[] longitudes = new float[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            latitudes[i] = (float) points.getLatitude(kept[i]);
+            longitudes[i] = (float) points.getLongitude(kept[i]);
+        }
+        return new Shape(file.getName(), file.lastModified(), file.length(), latitudes, longitudes);
+    }
+
+    private void load() {
+        if (!shapesFile.isFile()) return;
+
+        // Read whole, so available() is exactly what is left of the file
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(shapesFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            // Counts the file can't hold mean corruption; checked before sizing arrays by them
+            int shapeCount = in.readInt();
+            if (shapeCount < 0 || shapeCount > in.available() / MIN_SHAPE_BYTES) return;
+            Shape[] shapes = new Shape[shapeCount];
+            for (int s = 0; s < shapes.length; s++) {
+                String fileName = in.readUTF();
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                int count = in.readInt();
+                if (count < 0 || count > in.available() / POINT_BYTES) return;
+                float[] latitudes = new float[count];
+                float[] longitudes = new float[count];
+                for (int i = 0; i < count; i++) {
+                    latitudes[i] = in.readFloat();
+                    longitudes[i] = in.readFloat();
+                }
+                shapes[s] = new Shape(fileName, lastModified, length, latitudes, longitudes);
+            }
+            grid = new Grid(shapes);
+        } catch (IOException e) {
+            // Unreadable; refreshAsync() rebuilds it from the tracks
+        }
+    }
+
+    private void save() {
+        Shape[] shapes = grid.shapes;
+        File temp = new File(shapesFile.getParentFile(), SHAPES_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(shapes.length);
+            for (Shape shape : shapes) {
+                out.writeUTF(shape.fileName);
+                out.writeLong(shape.lastModified);
+                out.writeLong(shape.length);
+                out.writeInt(shape.latitudes.length);
+                for (int i = 0; i < shape.latitudes.length; i++) {
+                    out.writeFloat(shape.latitudes[i]);
+                    out.writeFloat(shape.longitudes[i]);
+                }
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        temp.renameTo(shapesFile);
+    }
+
+    private static int row(double latitude) {
+        return (int) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    private static int column(double longitude) {
+        return (int) Math.floor(longitude / CELL_DEGREES);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    // Equirectangular point-to-segment distance in meters; accurate at these ranges
+    private static double segmentDistance(double lat, double lon, double cosLat, Shape shape, int seg) {
+        double lat1 = shape.latitudes[seg], lon1 = shape.longitudes[seg];
+        double lat2 = shape.latitudes[seg + 1], lon2 = shape.longitudes[seg + 1];
+        double ax = (lon1 - lon) * cosLat, ay = lat1 - lat;
+        double bx = (lon2 - lon) * cosLat, by = lat2 - lat;
+        double dx = bx - ax, dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        double px = ax + t * dx, py = ay + t * dy;
+        return Math.sqrt(px * px + py * py) * METERS_PER_DEGREE;
+    }
+}
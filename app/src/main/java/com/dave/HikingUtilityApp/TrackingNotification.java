@@ -0,0 +1,164 @@
+package com.dave.HikingUtilityApp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+
+/**
+ * The tracking service's ongoing notification.
+ *
+ * Updates are coalesced: however many fixes arrive, the notification is
+ * re-posted at most once per interval, with the text current at that moment,
+ * and not at all if the text hasn't changed. The intents and the builders,
+ * one for recording and one for paused since their actions differ, are made
+ * once and reused, so a tick costs one format of the running totals and one
+ * post.
+ *
+ * Safe to call from any thread; scheduled ticks run on the main thread.
+ */
+public class TrackingNotification {
+
+    public interface Content {
+        boolean isPaused();
+
+        // Called once per tick at most, on any thread; should read published totals, not walk the track
+        String getText();
+    }
+
+    private static final String CHANNEL_ID = "GPX_TRACKING_CHANNEL";
+    private static final String TITLE = "🔴 GPS Tracking Active";
+
+    private final Context context;
+    private final int notificationId;
+    private final long intervalMs;
+    private final Content content;
+    private final NotificationManager manager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable postRunnable = this::post;
+
+    private final NotificationCompat.Builder recordingBuilder;
+    private final NotificationCompat.Builder pausedBuilder;
+
+    private boolean scheduled;
+    private long lastPostTime = -1;
+    private String lastText;
+    private boolean lastPaused;
+
+    public TrackingNotification(Context context, int notificationId, long intervalMs, Content content) {
+        this.context = context;
+        this.notificationId = notificationId;
+        this.intervalMs = intervalMs;
+        this.content = content;
+        this.manager = context.getSystemService(NotificationManager.class);
+        createChannel();
+
+        PendingIntent open = PendingIntent.getActivity(
+                context, 0, new Intent(context, MapActivity.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        PendingIntent stop = serviceIntent(1, "STOP_TRACKING");
+        PendingIntent pause = serviceIntent(2, "PAUSE_TRACKING");
+        PendingIntent resume = serviceIntent(3, "RESUME_TRACKING");
+
+        recordingBuilder = newBuilder(open)
+                .addAction(android.R.drawable.ic_media_play, "Pause", pause)
+                .addAction(android.R.drawable.ic_media_pause, "Stop", stop);
+        pausedBuilder = newBuilder(open)
+                .addAction(android.R.drawable.ic_media_play, "Resume", resume)
+                .addAction(android.R.drawable.ic_media_pause, "Stop", stop);
+    }
+
+    /**
+     * The current notification, for startForeground.
+     */
+    public synchronized Notification build() {
+        lastPaused = content.isPaused();
+        lastText = content.getText();
+        lastPostTime = SystemClock.elapsedRealtime();
+        return fill(lastPaused, lastText);
+    }
+
+    /**
+     * Asks for a refresh; it is posted by the end of the interval, together with any others asked for meanwhile.
+     */
+    public synchronized void update() {
+        if (scheduled) return;
+        scheduled = true;
+        long wait = lastPostTime < 0 ? 0 : lastPostTime + intervalMs - SystemClock.elapsedRealtime();
+        handler.postDelayed(postRunnable, Math.max(0, wait));
+    }
+
+    /**
+     * Refreshes right away, e.g. after pause or resume, where the buttons must change at once.
+     */
+    public synchronized void updateNow() {
+        handler.removeCallbacks(postRunnable);
+        post();
+    }
+
+    /**
+     * Drops a pending refresh; call once the notification is gone.
+     */
+    public synchronized void cancel() {
+        handler.removeCallbacks(postRunnable);
+        scheduled = false;
+    }
+
+    private synchronized void post() {
+        scheduled = false;
+        boolean paused = content.isPaused();
+        String text = content.getText();
+        lastPostTime = SystemClock.elapsedRealtime();
+        if (paused == lastPaused && text.equals(lastText)) return;
+
+        lastPaused = paused;
+        lastText = text;
+        manager.notify(notificationId, fill(paused, text));
+    }
+
+    private Notification fill(boolean paused, String text) {
+        return (paused ? pausedBuilder : recordingBuilder)
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text))
+                .build();
+    }
+
+    private NotificationCompat.Builder newBuilder(PendingIntent open) {
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle(TITLE)
+                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                .setContentIntent(open)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setSound(null)
+                .setVibrate(new long[]{0L})
+                .setDefaults(0);
+    }
+
+    private PendingIntent serviceIntent(int requestCode, String action) {
+        Intent intent = new Intent(context, GPXTrackingService.class);
+        intent.setAction(action);
+        return PendingIntent.getService(context, requestCode, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private void createChannel() {
+        NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID,
+                "GPS Tracking",
+                NotificationManager.IMPORTANCE_LOW
+        );
+        channel.setDescription("Background GPS tracking for hiking");
+        channel.setSound(null, null);
+        manager.createNotificationChannel(channel);
+    }
+}
@@ -0,0 +1,173 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLocationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocationHubTest {
+
+    private static final String GPS = LocationManager.GPS_PROVIDER;
+    private static final double METERS_PER_DEGREE = 111_195;
+
+    private LocationManager locationManager;
+    private ShadowLocationManager shadowLocationManager;
+    private LocationHub hub;
+    private double north;
+
+    @Before
+    public void setUp() {
+        LocationManager real = (LocationManager) RuntimeEnvironment.getApplication()
+                .getSystemService(Context.LOCATION_SERVICE);
+        shadowLocationManager = shadowOf(real);
+        locationManager = spy(real);
+        hub = new LocationHub(locationManager);
+    }
+
+    @Test
+    public void registersOnceAtTheStrictestRequest() {
+        Recorder walk = new Recorder();
+        Recorder map = new Recorder();
+        assertTrue(hub.subscribe(walk, GPS, 10_000, 5));
+        assertTrue(hub.subscribe(map, GPS, 2000, 20));
+
+        assertEquals(1, shadowLocationManager.getLocationUpdateListeners(GPS).size());
+        assertRegistered(2000, 5);
+
+        hub.unsubscribe(map);
+        assertEquals(1, shadowLocationManager.getLocationUpdateListeners(GPS).size());
+        assertRegistered(10_000, 5);
+    }
+
+    @Test
+    public void throttlesEachSubscriberToItsOwnRate() {
+        Recorder fast = new Recorder();
+        Recorder slow = new Recorder();
+        Recorder far = new Recorder();
+        hub.subscribe(fast, GPS, 2000, 0);
+        hub.subscribe(slow, GPS, 10_000, 0);
+        hub.subscribe(far, GPS, 2000, 50);
+
+        // 20 m every 2 s for 20 s
+        for (int i = 0; i < 10; i++) fix(2000, 20);
+
+        assertEquals(10, fast.fixes.size());
+        assertEquals(2, slow.fixes.size());
+        assertEquals(10_000, slow.times.get(1) - slow.times.get(0));
+        // Every third fix is the first 50 m on from the last one it got
+        assertEquals(4, far.fixes.size());
+        for (int i = 1; i < far.fixes.size(); i++) {
+            assertTrue(far.fixes.get(i).distanceTo(far.fixes.get(i - 1)) >= 50);
+        }
+    }
+
+    @Test
+    public void removesTheRegistrationWhenTheLastSubscriberLeaves() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        hub.subscribe(first, GPS, 5000, 0);
+        hub.subscribe(second, GPS, 5000, 0);
+
+        hub.unsubscribe(first);
+        assertEquals(1, shadowLocationManager.getLocationUpdateListeners(GPS).size());
+        hub.unsubscribe(second);
+        assertTrue(shadowLocationManager.getLocationUpdateListeners(GPS).isEmpty());
+        assertTrue(shadowLocationManager.getLegacyLocationRequests(GPS).isEmpty());
+
+        fix(5000, 20);
+        assertTrue(first.fixes.isEmpty());
+        assertTrue(second.fixes.isEmpty());
+    }
+
+    @Test
+    public void refusedSubscriptionLeavesTheRegistrationAlone() {
+        Recorder walk = new Recorder();
+        Recorder refused = new Recorder();
+        hub.subscribe(walk, GPS, 5000, 0);
+
+        refuseRequestsFasterThan(5000);
+        assertFalse(hub.subscribe(refused, GPS, 1000, 0));
+        assertRegistered(5000, 0);
+
+        fix(5000, 20);
+        assertEquals(1, walk.fixes.size());
+        assertTrue(refused.fixes.isEmpty());
+    }
+
+    @Test
+    public void failedChangeKeepsThePreviousSubscription() {
+        Recorder walk = new Recorder();
+        hub.subscribe(walk, GPS, 5000, 0);
+
+        refuseRequestsFasterThan(5000);
+        assertFalse(hub.subscribe(walk, GPS, 1000, 0));
+        assertRegistered(5000, 0);
+
+        fix(5000, 20);
+        fix(5000, 20);
+        assertEquals(2, walk.fixes.size());
+    }
+
+    // Robolectric grants every permission, so the refusal a revoked one would cause is injected
+    private void refuseRequestsFasterThan(long intervalMs) {
+        doThrow(new SecurityException("location permission revoked")).when(locationManager).requestLocationUpdates(
+                anyString(), longThat(interval -> interval < intervalMs), anyFloat(),
+                any(LocationListener.class), any(Looper.class));
+    }
+
+    private void assertRegistered(long intervalMs, float minDistanceMeters) {
+        List<ShadowLocationManager.RoboLocationRequest> requests = shadowLocationManager.getLegacyLocationRequests(GPS);
+        assertEquals(1, requests.size());
+        assertEquals(intervalMs, requests.get(0).getIntervalMillis());
+        assertEquals(minDistanceMeters, requests.get(0).getMinUpdateDistanceMeters(), 0);
+    }
+
+    // Moves north and reports a fix once the clock has moved on
+    private void fix(long afterMs, double meters) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(afterMs));
+        north += meters;
+        Location location = new Location(GPS);
+        location.setLatitude(46.5 + north / METERS_PER_DEGREE);
+        location.setLongitude(7.9);
+        location.setTime(System.currentTimeMillis());
+        location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+        shadowLocationManager.simulateLocation(location);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static final class Recorder implements LocationListener {
+        final List<Location> fixes = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+
+        @Override
+        public void onLocationChanged(Location location) {
+            fixes.add(location);
+            times.add(SystemClock.elapsedRealtime());
+        }
+    }
+}
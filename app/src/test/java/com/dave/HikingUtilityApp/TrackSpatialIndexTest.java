@@ -0,0 +1,197 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrackSpatialIndexTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private Context context;
+    private File folder;
+    private File shapesFile;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        folder = new File(context.getExternalFilesDir(null), "GPXTracks");
+        folder.mkdirs();
+        shapesFile = new File(context.getExternalFilesDir(null), "track_shapes.dat");
+    }
+
+    @Test
+    public void nearestFindsTheClosestTrack() throws Exception {
+        TrackSpatialIndex index = newIndex();
+        // Two tracks about 2 km long, running north some 50 km apart
+        index.put(new File(folder, "near.gpx"), line(46.50, 7.90, 46.52, 7.90));
+        index.put(new File(folder, "far.gpx"), line(46.50, 8.55, 46.52, 8.55));
+        awaitIdle(index);
+
+        double metersPerLongitude = TrackSpatialIndex.METERS_PER_DEGREE * Math.cos(Math.toRadians(46.51));
+        TrackSpatialIndex.Nearest nearest = index.nearest(46.51, 7.90 - 300 / metersPerLongitude, 1000);
+        assertNotNull(nearest);
+        assertEquals("near.gpx", nearest.file.getName());
+        assertEquals(300, nearest.distance, 1);
+
+        nearest = index.nearest(46.51, 8.60, 10_000);
+        assertEquals("far.gpx", nearest.file.getName());
+        assertEquals(0.05 * metersPerLongitude, nearest.distance, 1);
+
+        assertNull(index.nearest(46.51, 8.20, 1000));
+        assertNull(index.nearest(40, 0, 200_000));
+    }
+
+    // A radius covering more than MAX_QUERY_CELLS cells scans bounding boxes instead
+    // of the grid, and must give the same answers
+    @Test
+    public void wideRadiusMatchesTheGrid() throws Exception {
+        TrackSpatialIndex index = newIndex();
+        Random random = new Random(16);
+        for (int t = 0; t < 30; t++) {
+            double latitude = 46.4 + random.nextDouble() * 0.2;
+            double longitude = 7.8 + random.nextDouble() * 0.3;
+            index.put(new File(folder, "track" + t + ".gpx"), line(latitude, longitude,
+                    latitude + random.nextGaussian() * 0.02, longitude + random.nextGaussian() * 0.02));
+        }
+        awaitIdle(index);
+
+        double narrow = 5000, wide = 300_000;
+        double cells = 2 * wide / TrackSpatialIndex.METERS_PER_DEGREE / 0.01;
+        assertTrue(cells * cells > TrackSpatialIndex.MAX_QUERY_CELLS);
+
+        int found = 0;
+        for (int i = 0; i < 200; i++) {
+            double latitude = 46.35 + random.nextDouble() * 0.3;
+            double longitude = 7.75 + random.nextDouble() * 0.4;
+            TrackSpatialIndex.Nearest grid = index.nearest(latitude, longitude, narrow);
+            TrackSpatialIndex.Nearest bounds = index.nearest(latitude, longitude, wide);
+            assertNotNull(bounds);
+            if (grid == null) {
+                assertTrue(bounds.distance > narrow);
+                continue;
+            }
+            found++;
+            assertEquals(grid.distance, bounds.distance, 1e-6);
+        }
+        assertTrue(found > 100);
+    }
+
+    @Test
+    public void shapesSurviveAReopen() throws Exception {
+        TrackSpatialIndex index = newIndex();
+        index.put(new File(folder, "walk.gpx"), line(46.50, 7.90, 46.52, 7.90));
+        awaitIdle(index);
+
+        TrackSpatialIndex reopened = newIndex();
+        awaitIdle(reopened);
+        assertEquals("walk.gpx", reopened.nearest(46.51, 7.90, 100).file.getName());
+    }
+
+    // Would otherwise size an array by the bad count and run out of memory
+    @Test
+    public void corruptCountsAreIgnored() throws Exception {
+        TrackSpatialIndex index = newIndex();
+        index.put(new File(folder, "walk.gpx"), line(46.50, 7.90, 46.52, 7.90));
+        awaitIdle(index);
+        byte[] saved = Files.readAllBytes(shapesFile.toPath());
+
+        // Magic and version, then the shape count
+        patchInt(8, Integer.MAX_VALUE);
+        assertEmptyOnReopen();
+
+        // The count, the name's length and UTF-8, lastModified and length, then the point count
+        Files.write(shapesFile.toPath(), saved);
+        patchInt(12 + 2 + "walk.gpx".length() + 8 + 8, Integer.MAX_VALUE);
+        assertEmptyOnReopen();
+
+        Files.write(shapesFile.toPath(), saved);
+        patchInt(8, -1);
+        assertEmptyOnReopen();
+    }
+
+    // Shapes put before a refresh are kept by it, even for a file it can't parse
+    @Test
+    public void refreshKeepsQueuedShapes() throws Exception {
+        File walk = new File(folder, "walk.gpx");
+        File gone = new File(folder, "gone.gpx");
+        Files.write(walk.toPath(), "not yet a GPX file".getBytes(StandardCharsets.UTF_8));
+        Files.write(gone.toPath(), "deleted soon".getBytes(StandardCharsets.UTF_8));
+
+        TrackSpatialIndex index = newIndex();
+        index.put(gone, line(46.60, 7.90, 46.62, 7.90));
+        awaitIdle(index);
+
+        gone.delete();
+        AtomicBoolean changed = new AtomicBoolean();
+        index.put(walk, line(46.50, 7.90, 46.52, 7.90));
+        index.refreshAsync(() -> changed.set(true));
+        awaitIdle(index);
+
+        assertTrue(changed.get());
+        assertEquals("walk.gpx", index.nearest(46.51, 7.90, 100).file.getName());
+        assertNull(index.nearest(46.61, 7.90, 100));
+    }
+
+    private TrackSpatialIndex newIndex() {
+        return new TrackSpatialIndex(context);
+    }
+
+    private void assertEmptyOnReopen() throws TimeoutException {
+        TrackSpatialIndex reopened = newIndex();
+        awaitIdle(reopened);
+        assertNull(reopened.nearest(46.51, 7.90, 100));
+    }
+
+    // Points about 10 m apart, which simplify to the two ends
+    private static TrackView line(double lat1, double lon1, double lat2, double lon2) {
+        TrackBuffer points = new TrackBuffer();
+        int count = 1 + (int) (Math.hypot(lat2 - lat1, lon2 - lon1) * TrackSpatialIndex.METERS_PER_DEGREE / 10);
+        for (int i = 0; i <= count; i++) {
+            double t = i / (double) count;
+            points.append(lat1 + (lat2 - lat1) * t, lon1 + (lon2 - lon1) * t, 1500, START + i * 5000L);
+        }
+        return points;
+    }
+
+    private void patchInt(int offset, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(shapesFile, "rw")) {
+            raf.seek(offset);
+            raf.writeInt(value);
+        }
+    }
+
+    // The index works on its own thread and reports back through the main looper
+    private static void awaitIdle(TrackSpatialIndex index) throws TimeoutException {
+        AtomicBoolean ready = new AtomicBoolean();
+        index.whenReady(() -> ready.set(true));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ready.get()) {
+            if (System.currentTimeMillis() > deadline) throw new TimeoutException();
+            shadowOf(Looper.getMainLooper()).idle();
+            SystemClock.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dave.HikingUtilityApp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tracking service's fix filter on a noisy copy of a synthetic walk:
+ * a few metres of error per fix, the odd fix with poor accuracy and the odd
+ * jump of a few hundred metres, as phone GPS produces under trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixFilterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int points;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] elevations;
+    private long[] timestamps;
+    private double[] accuracies;
+
+    @Setup
+    public void setUp() {
+        TrackBuffer track = SyntheticTracks.randomWalk(points, 42);
+        Random random = new Random(7);
+        latitudes = new double[points];
+        longitudes = new double[points];
+        elevations = new double[points];
+        timestamps = new long[points];
+        accuracies = new double[points];
+        for (int i = 0; i < points; i++) {
+            double accuracy = 4 + Math.abs(random.nextGaussian() * 3);
+            if (random.nextDouble() < 0.03) accuracy = 60;
+            double error = accuracy * 0.7 / 111_320;
+            latitudes[i] = track.getLatitude(i) + random.nextGaussian() * error;
+            longitudes[i] = track.getLongitude(i) + random.nextGaussian() * error;
+            if (random.nextDouble() < 0.01) latitudes[i] += 300.0 / 111_320;
+            elevations[i] = track.getElevation(i);
+            timestamps[i] = track.getTimestamp(i);
+            accuracies[i] = accuracy;
+        }
+    }
+
+    @Benchmark
+    public int filter(Blackhole blackhole) {
+        FixFilter filter = new FixFilter(FixFilter.Config.HIKING,
+                (latitude, longitude, elevation, timestamp) -> blackhole.consume(latitude + longitude));
+        for (int i = 0; i < points; i++) {
+            filter.offer(latitudes[i], longitudes[i], elevations[i], timestamps[i], accuracies[i]);
+        }
+        filter.flush();
+        return filter.getStoredCount();
+    }
+}
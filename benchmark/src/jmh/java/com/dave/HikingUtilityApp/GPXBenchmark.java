@@ -0,0 +1,59 @@
+package com.dave.HikingUtilityApp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GPX import and export: the same GPXReader/GPXWriter calls GPXManager makes,
+ * minus the file I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GPXBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int points;
+
+    private TrackBuffer track;
+    private String gpx;
+
+    @Setup
+    public void setUp() {
+        track = SyntheticTracks.randomWalk(points, 42);
+        gpx = SyntheticTracks.toGPX(track);
+    }
+
+    @Benchmark
+    public TrackBuffer parse() throws IOException {
+        TrackBuffer parsed = new TrackBuffer();
+        try (GPXReader reader = new GPXReader(new StringReader(gpx))) {
+            reader.readPoints(parsed, 0);
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    public StringWriter export() throws IOException {
+        StringWriter out = new StringWriter(gpx.length());
+        new GPXWriter(out).writeTrack("Benchmark", null, 1_700_000_000_000L, track);
+        return out;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dave.HikingUtilityApp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-track distance and bearing. {@link #haversinePairs} is the per-pair
+ * loop GPXTrack.getTotalDistance used to run and is kept as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeodesyBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int points;
+
+    private TrackBuffer track;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup
+    public void setUp() {
+        track = SyntheticTracks.randomWalk(points, 42);
+        latitudes = new double[points];
+        longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = track.getLatitude(i);
+            longitudes[i] = track.getLongitude(i);
+        }
+    }
+
+    @Benchmark
+    public double haversinePairs() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += Geodesy.haversine(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return total;
+    }
+
+    // What LocationHelper.calculateDistance does per call
+    @Benchmark
+    public double distancePairs() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += Geodesy.distance(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return total;
+    }
+
+    // GPXTrack.getTotalDistance
+    @Benchmark
+    public double pathLength() {
+        return track.pathLength();
+    }
+
+    // LocationHelper.calculateBearing
+    @Benchmark
+    public double bearingPairs() {
+        double total = 0;
+        for (int i = 1; i < points; i++) {
+            total += Geodesy.bearing(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,43 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Deterministic input for the benchmarks: a random walk with hiking-like
+ * spacing (a few metres and one second per fix) and gently varying elevation.
+ */
+final class SyntheticTracks {
+
+    private SyntheticTracks() {}
+
+    static TrackBuffer randomWalk(int points, long seed) {
+        Random random = new Random(seed);
+        TrackBuffer track = new TrackBuffer(points);
+
+        double latitude = 46.5, longitude = 8.0, elevation = 1200;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.2;
+            double step = 1 + random.nextDouble() * 3; // metres
+            latitude += step * Math.cos(heading) / 111_320;
+            longitude += step * Math.sin(heading) / (111_320 * Math.cos(Math.toRadians(latitude)));
+            elevation += random.nextGaussian() * 0.5;
+            timestamp += 1000;
+            track.append(latitude, longitude, elevation, timestamp);
+        }
+        return track;
+    }
+
+    static String toGPX(TrackView points) {
+        StringWriter out = new StringWriter(points.size() * 160);
+        try {
+            new GPXWriter(out).writeTrack("Benchmark", null, 1_700_000_000_000L, points);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter never throws
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.dave.HikingUtilityApp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tracking service's stat methods. {@link #record} feeds fixes one at a
+ * time and reads what the notification shows after each, as a recording does;
+ * {@link #summarize} is TrackStats.of on a finished track, as imports do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackStatsBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int points;
+
+    private TrackBuffer track;
+
+    @Setup
+    public void setUp() {
+        track = SyntheticTracks.randomWalk(points, 42);
+    }
+
+    @Benchmark
+    public void record(Blackhole blackhole) {
+        TrackStats stats = new TrackStats();
+        long start = track.getTimestamp(0);
+        for (int i = 0; i < points; i++) {
+            long timestamp = track.getTimestamp(i);
+            stats.add(track.getLatitude(i), track.getLongitude(i), track.getElevation(i), timestamp);
+
+            // GPXTrackingService.calculateTotalDistance / PaceMinPerMile / CurrentPaceMinPerMile
+            blackhole.consume(stats.getTotalDistance());
+            blackhole.consume(stats.getAveragePaceMinPerMile(timestamp - start));
+            blackhole.consume(stats.getCurrentPaceMinPerMile());
+            blackhole.consume(stats.getElevationGain());
+        }
+    }
+
+    @Benchmark
+    public TrackStats summarize() {
+        return TrackStats.of(track);
+    }
+}
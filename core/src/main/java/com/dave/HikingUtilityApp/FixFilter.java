@@ -0,0 +1,223 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Cleans up raw GPS fixes before they are stored.
+ *
+ * Each fix goes through four stages, in order:
+ *   accuracy gate   fixes whose reported accuracy is worse than the limit are dropped
+ *   teleport check  fixes implying an impossible speed from the last good one are dropped
+ *   smoothing       a constant-position Kalman filter weighted by reported accuracy
+ *   stationary      fixes within a small radius of the last stored point are held back;
+ *                   a long stop is stored as one extra point, so time is kept but the
+ *                   jitter while standing still adds neither points nor distance
+ *
+ * Surviving points go to a {@link Sink}. Every stage can be switched off
+ * through {@link Config}; {@link Config#PASS_THROUGH} stores fixes unchanged.
+ */
+public class FixFilter {
+
+    public interface Sink {
+        void accept(double latitude, double longitude, double elevation, long timestamp);
+    }
+
+    public static final class Config {
+        /** Typical hiking: phone GPS, walking speeds, occasional stops. */
+        public static final Config HIKING = new Config(25, 12, 1.5, 5, 20_000);
+
+        /** No filtering at all. */
+        public static final Config PASS_THROUGH = new Config(
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 0);
+
+        /** Fixes reporting a worse accuracy (meters) are dropped. */
+        public final double maxAccuracy;
+        /**
+         * Speed (m/s) above which a jump between fixes is treated as an outlier;
+         * infinity disables the check, and with it the dropping of duplicate and
+         * out-of-order fixes.
+         */
+        public final double maxSpeed;
+        /** Expected change in position per second (m/s); infinity disables smoothing. */
+        public final double processNoise;
+        /** Movement (meters) below which a fix counts as standing still; 0 disables collapsing. */
+        public final double stationaryRadius;
+        /** Stops at least this long (ms) are kept as a point at their end. */
+        public final long minStopMillis;
+
+        public Config(double maxAccuracy, double maxSpeed, double processNoise,
+                      double stationaryRadius, long minStopMillis) {
+            this.maxAccuracy = maxAccuracy;
+            this.maxSpeed = maxSpeed;
+            this.processNoise = processNoise;
+            this.stationaryRadius = stationaryRadius;
+            this.minStopMillis = minStopMillis;
+        }
+    }
+
+    // Used when a fix has no accuracy estimate
+    private static final double DEFAULT_ACCURACY = 10;
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * Geodesy.EARTH_RADIUS;
+
+    private final Config config;
+    private final Sink sink;
+
+    // Last fix that passed the gates, for the teleport check
+    private boolean hasLastRaw;
+    private double lastRawLatitude;
+    private double lastRawLongitude;
+    private double lastRawAccuracy;
+    private long lastRawTime;
+
+    // Kalman state in degrees; variance in square meters, negative until the first fix
+    private double filteredLatitude;
+    private double filteredLongitude;
+    private double variance = -1;
+    private long filteredTime;
+
+    // Last point handed to the sink, and the newest fix held back near it
+    private boolean hasStored;
+    private double storedLatitude;
+    private double storedLongitude;
+    private long storedTime;
+    private boolean hasHeld;
+    private double heldElevation;
+    private long heldTime;
+
+    private int received;
+    private int rejectedAccuracy;
+    private int rejectedOutliers;
+    private int collapsed;
+    private int stored;
+
+    public FixFilter(Config config, Sink sink) {
+        this.config = config;
+        this.sink = sink;
+    }
+
+    /**
+     * Feeds one raw fix. {@code accuracy} is the 68% radius in meters, or 0 or less if unknown.
+     */
+    public void offer(double latitude, double longitude, double elevation, long timestamp, double accuracy) {
+        received++;
+        if (accuracy <= 0) accuracy = DEFAULT_ACCURACY;
+
+        if (accuracy > config.maxAccuracy) {
+            rejectedAccuracy++;
+            return;
+        }
+
+        if (hasLastRaw && !Double.isInfinite(config.maxSpeed)) {
+            double seconds = (timestamp - lastRawTime) / 1000.0;
+            if (seconds <= 0) {
+                rejectedOutliers++; // duplicate or out of order
+                return;
+            }
+            // Allow for both fixes' error before calling it a jump
+            double distance = Geodesy.distance(lastRawLatitude, lastRawLongitude, latitude, longitude);
+            if (distance - accuracy - lastRawAccuracy > config.maxSpeed * seconds) {
+                rejectedOutliers++;
+                return;
+            }
+        }
+        hasLastRaw = true;
+        lastRawLatitude = latitude;
+        lastRawLongitude = longitude;
+        lastRawAccuracy = accuracy;
+        lastRawTime = timestamp;
+
+        smooth(latitude, longitude, accuracy, timestamp);
+        store(filteredLatitude, filteredLongitude, elevation, timestamp);
+    }
+
+    /**
+     * Stores a stop still being held back. Call before pausing or finishing a track.
+     */
+    public void flush() {
+        if (hasHeld) emitHeld();
+    }
+
+    /**
+     * Flushes and forgets all state, e.g. across a pause, so the next fix starts fresh.
+     */
+    public void reset() {
+        flush();
+        hasLastRaw = false;
+        variance = -1;
+        hasStored = false;
+    }
+
+    public int getReceivedCount() {
+        return received;
+    }
+
+    public int getStoredCount() {
+        return stored;
+    }
+
+    public int getRejectedAccuracyCount() {
+        return rejectedAccuracy;
+    }
+
+    public int getRejectedOutlierCount() {
+        return rejectedOutliers;
+    }
+
+    public int getCollapsedCount() {
+        return collapsed;
+    }
+
+    private void smooth(double latitude, double longitude, double accuracy, long timestamp) {
+        double measurementVariance = accuracy * accuracy;
+        if (variance < 0 || Double.isInfinite(config.processNoise)) {
+            filteredLatitude = latitude;
+            filteredLongitude = longitude;
+            variance = measurementVariance;
+            filteredTime = timestamp;
+            return;
+        }
+
+        double seconds = (timestamp - filteredTime) / 1000.0;
+        filteredTime = timestamp;
+        variance += seconds * config.processNoise * config.processNoise;
+
+        double gain = variance / (variance + measurementVariance);
+        filteredLatitude += gain * (latitude - filteredLatitude);
+        filteredLongitude += gain * (longitude - filteredLongitude);
+        variance *= 1 - gain;
+    }
+
+    private void store(double latitude, double longitude, double elevation, long timestamp) {
+        if (hasStored && config.stationaryRadius > 0) {
+            double dLat = (latitude - storedLatitude) * METERS_PER_DEGREE;
+            double dLon = (longitude - storedLongitude) * METERS_PER_DEGREE
+                    * Math.cos(Math.toRadians(storedLatitude));
+            if (dLat * dLat + dLon * dLon < config.stationaryRadius * config.stationaryRadius) {
+                collapsed++;
+                hasHeld = true;
+                heldElevation = elevation;
+                heldTime = timestamp;
+                return;
+            }
+        }
+
+        if (hasHeld) emitHeld();
+        emit(latitude, longitude, elevation, timestamp);
+    }
+
+    // A stop becomes one point at the stored position, carrying the stop's end time
+    private void emitHeld() {
+        hasHeld = false;
+        if (heldTime - storedTime < config.minStopMillis) return;
+        collapsed--;
+        emit(storedLatitude, storedLongitude, heldElevation, heldTime);
+    }
+
+    private void emit(double latitude, double longitude, double elevation, long timestamp) {
+        hasStored = true;
+        storedLatitude = latitude;
+        storedLongitude = longitude;
+        storedTime = timestamp;
+        stored++;
+        sink.accept(latitude, longitude, elevation, timestamp);
+    }
+}
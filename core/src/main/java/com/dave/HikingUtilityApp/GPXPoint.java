@@ -0,0 +1,26 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * A single GPX waypoint or track point as a plain object.
+ *
+ * Tracks themselves are stored column-wise in {@link TrackBuffer}; this is for
+ * code that wants one point at a time. Conversions to and from
+ * android.location.Location live in the app's GPXManager.
+ */
+public class GPXPoint {
+    public double latitude;
+    public double longitude;
+    public double elevation;
+    public long timestamp;
+
+    public GPXPoint(double lat, double lon) {
+        this.latitude = lat;
+        this.longitude = lon;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public GPXPoint(double lat, double lon, double elevation) {
+        this(lat, lon);
+        this.elevation = elevation;
+    }
+}
@@ -0,0 +1,431 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming, pull-based GPX reader.
+ *
+ * Walks the document once through a small fixed buffer and stops on every
+ * {@code <trkpt>}, exposing that point's own {@code <ele>} and {@code <time>}
+ * children. Nothing but the current point is kept, so memory use does not
+ * grow with the size of the file.
+ *
+ * <pre>
+ * GPXReader reader = new GPXReader(in);
+ * while (reader.nextPoint()) {
+ *     reader.getLatitude(); reader.getLongitude(); ...
+ * }
+ * </pre>
+ */
+public class GPXReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int CAPTURE_NONE = 0;
+    private static final int CAPTURE_NAME = 1;
+    private static final int CAPTURE_ELE = 2;
+    private static final int CAPTURE_TIME = 3;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Scratch space reused for every tag, so parsing a point allocates almost nothing
+    private final StringBuilder tagName = new StringBuilder(16);
+    private final StringBuilder attrName = new StringBuilder(16);
+    private final StringBuilder attrValue = new StringBuilder(32);
+    private final StringBuilder text = new StringBuilder(64);
+    private final StringBuilder time = new StringBuilder(32);
+
+    private String trackName;
+    private boolean inPoint;
+    private int capture = CAPTURE_NONE;
+
+    private double latitude;
+    private double longitude;
+    private double elevation;
+    private boolean hasElevation;
+    private boolean hasTime;
+
+    public GPXReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Advances to the next track point. Returns false at the end of the document.
+     */
+    public boolean nextPoint() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<') {
+                if (capture != CAPTURE_NONE) text.append((char) c);
+                continue;
+            }
+            if (readMarkup()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the rest of the document as one track, named after its {@code <name>}
+     * if it has one. Points without a usable {@code <time>} get {@code defaultTimestamp}.
+     */
+    public GPXTrack readTrack(long defaultTimestamp) throws IOException {
+        GPXTrack track = new GPXTrack("Imported Track");
+        readPoints(track.points, defaultTimestamp);
+        track.points.trimToSize();
+
+        if (trackName != null) {
+            track.name = trackName;
+        }
+        return track;
+    }
+
+    /**
+     * Reads every remaining point into {@code points}. Points without a usable
+     * {@code <time>} get {@code defaultTimestamp}.
+     */
+    public void readPoints(TrackBuffer points, long defaultTimestamp) throws IOException {
+        // Single pass over the document; each trkpt carries its own ele/time
+        while (nextPoint()) {
+            double elevation = hasElevation ? this.elevation : 0;
+            long timestamp = hasTime ? GPXTime.parse(time) : GPXTime.INVALID;
+            if (timestamp == GPXTime.INVALID) timestamp = defaultTimestamp;
+
+            points.append(latitude, longitude, elevation, timestamp);
+        }
+    }
+
+    /**
+     * The first {@code <name>} outside a track point, or null if none has been seen yet.
+     */
+    public String getTrackName() {
+        return trackName;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean hasElevation() {
+        return hasElevation;
+    }
+
+    public double getElevation() {
+        return elevation;
+    }
+
+    public boolean hasTime() {
+        return hasTime;
+    }
+
+    /**
+     * Raw text of the current point's {@code <time>}. Only valid until the next call to {@link #nextPoint()}.
+     */
+    public CharSequence getTime() {
+        return hasTime ? time : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ================== MARKUP ==================
+
+    // Reads everything after a '<'. Returns true when a complete track point is ready.
+    private boolean readMarkup() throws IOException {
+        int c = read();
+        if (c == '?') {
+            skipPast("?>");
+            return false;
+        }
+        if (c == '!') {
+            readDeclaration();
+            return false;
+        }
+        if (c == '/') {
+            return readEndTag();
+        }
+        if (c == -1) return false;
+
+        unread();
+        return readStartTag();
+    }
+
+    private void readDeclaration() throws IOException {
+        int c = read();
+        if (c == '-') {
+            read(); // second '-'
+            skipPast("-->");
+        } else if (c == '[') {
+            skipPast("CDATA[");
+            // CDATA content is literal text
+            while ((c = read()) != -1) {
+                if (c == ']' && peekIs("]>")) {
+                    read();
+                    read();
+                    return;
+                }
+                if (capture != CAPTURE_NONE) text.append((char) c);
+            }
+        } else {
+            skipPast(">");
+        }
+    }
+
+    private boolean readStartTag() throws IOException {
+        readName(tagName);
+        boolean isPoint = !inPoint && localNameIs(tagName, "trkpt");
+
+        if (isPoint) {
+            latitude = 0;
+            longitude = 0;
+            elevation = 0;
+            hasElevation = false;
+            hasTime = false;
+            time.setLength(0);
+        }
+
+        boolean selfClosing = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '>') break;
+            if (c == '/') {
+                selfClosing = true;
+                continue;
+            }
+            if (isWhitespace(c)) continue;
+
+            unread();
+            readName(attrName);
+            readAttributeValue(isPoint);
+            if (isPoint) {
+                if (localNameIs(attrName, "lat")) latitude = parseDouble(attrValue);
+                else if (localNameIs(attrName, "lon")) longitude = parseDouble(attrValue);
+            }
+        }
+
+        if (isPoint) {
+            if (selfClosing) return true;
+            inPoint = true;
+            return false;
+        }
+
+        if (selfClosing) return false;
+
+        if (inPoint) {
+            if (localNameIs(tagName, "ele")) startCapture(CAPTURE_ELE);
+            else if (localNameIs(tagName, "time")) startCapture(CAPTURE_TIME);
+        } else if (trackName == null && localNameIs(tagName, "name")) {
+            startCapture(CAPTURE_NAME);
+        }
+        return false;
+    }
+
+    private boolean readEndTag() throws IOException {
+        readName(tagName);
+        skipPast(">");
+
+        if (capture != CAPTURE_NONE) {
+            String expected = capture == CAPTURE_NAME ? "name" : capture == CAPTURE_ELE ? "ele" : "time";
+            if (localNameIs(tagName, expected)) endCapture();
+            return false;
+        }
+
+        if (inPoint && localNameIs(tagName, "trkpt")) {
+            inPoint = false;
+            return true;
+        }
+        return false;
+    }
+
+    private void startCapture(int what) {
+        capture = what;
+        text.setLength(0);
+    }
+
+    private void endCapture() {
+        switch (capture) {
+            case CAPTURE_NAME:
+                trackName = decodeEntities(text).trim();
+                break;
+            case CAPTURE_ELE:
+                try {
+                    elevation = parseDouble(text);
+                    hasElevation = true;
+                } catch (NumberFormatException e) {
+                    // Ignore invalid elevation
+                }
+                break;
+            case CAPTURE_TIME:
+                time.setLength(0);
+                appendTrimmed(time, text);
+                hasTime = time.length() > 0;
+                break;
+        }
+        capture = CAPTURE_NONE;
+    }
+
+    private void readName(StringBuilder out) throws IOException {
+        out.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (isWhitespace(c) || c == '>' || c == '/' || c == '=') {
+                unread();
+                return;
+            }
+            out.append((char) c);
+        }
+    }
+
+    // Reads ="value" (or ='value'); the value is only kept when needed
+    private void readAttributeValue(boolean keep) throws IOException {
+        attrValue.setLength(0);
+        int c;
+        while ((c = read()) != -1 && c != '"' && c != '\'') {
+            if (c == '>') {
+                unread();
+                return;
+            }
+        }
+        if (c == -1) return;
+
+        int quote = c;
+        while ((c = read()) != -1 && c != quote) {
+            if (keep) attrValue.append((char) c);
+        }
+    }
+
+    // ================== BUFFER ==================
+
+    private int read() throws IOException {
+        if (position >= limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    // Only ever called right after a successful read(), so the char is still in the buffer
+    private void unread() {
+        position--;
+    }
+
+    private boolean peekIs(String s) throws IOException {
+        if (position + s.length() > limit) {
+            // Compact the remainder to the front and top the buffer up
+            int remaining = limit - position;
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+            int n;
+            while (limit < s.length() && (n = in.read(buffer, limit, buffer.length - limit)) > 0) {
+                limit += n;
+            }
+            if (limit < s.length()) return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (buffer[position + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void skipPast(String terminator) throws IOException {
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == terminator.charAt(matched)) {
+                if (++matched == terminator.length()) return;
+            } else {
+                matched = c == terminator.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    // ================== HELPERS ==================
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    // Compares ignoring any namespace prefix, e.g. "gpx:trkpt"
+    private static boolean localNameIs(StringBuilder name, String expected) {
+        int start = name.lastIndexOf(":") + 1;
+        int length = name.length() - start;
+        if (length != expected.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static double parseDouble(CharSequence s) {
+        return Double.parseDouble(s.toString().trim());
+    }
+
+    private static void appendTrimmed(StringBuilder out, CharSequence s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && isWhitespace(s.charAt(start))) start++;
+        while (end > start && isWhitespace(s.charAt(end - 1))) end--;
+        out.append(s, start, end);
+    }
+
+    private static String decodeEntities(CharSequence s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int semicolon;
+            if (c != '&' || (semicolon = indexOf(s, ';', i)) < 0) {
+                out.append(c);
+                continue;
+            }
+            int decoded = decodeEntity(s.subSequence(i + 1, semicolon).toString());
+            if (decoded < 0) {
+                out.append(c);
+                continue;
+            }
+            out.appendCodePoint(decoded);
+            i = semicolon;
+        }
+        return out.toString();
+    }
+
+    // Returns the code point for an entity body such as "amp" or "#x26", or -1 if unknown
+    private static int decodeEntity(String entity) {
+        switch (entity) {
+            case "amp": return '&';
+            case "lt": return '<';
+            case "gt": return '>';
+            case "quot": return '"';
+            case "apos": return '\'';
+        }
+        int codePoint = -1;
+        try {
+            if (entity.startsWith("#x")) codePoint = Integer.parseInt(entity.substring(2), 16);
+            else if (entity.startsWith("#")) codePoint = Integer.parseInt(entity.substring(1));
+        } catch (NumberFormatException e) {
+            // Keep the text as-is
+        }
+        return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,172 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Allocation-free ISO-8601 timestamp decoding for GPX {@code <time>} values.
+ *
+ * Handles {@code yyyy-MM-ddTHH:mm:ss}, an optional fraction of any length and
+ * an optional zone of {@code Z}, {@code ±hh:mm}, {@code ±hhmm} or {@code ±hh}.
+ * Times without a zone are read as UTC, which is what GPX requires.
+ *
+ * {@link Formatter} goes the other way for export.
+ */
+public final class GPXTime {
+
+    /** Returned by {@link #parse(CharSequence)} when the text is not a usable timestamp. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private GPXTime() { }
+
+    public static long parse(CharSequence s) {
+        if (s == null) return INVALID;
+        int length = s.length();
+        if (length < 19) return INVALID;
+
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) return INVALID;
+        if (s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(13) != ':' || s.charAt(16) != ':') return INVALID;
+        char separator = s.charAt(10);
+        if (separator != 'T' && separator != 't' && separator != ' ') return INVALID;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour > 23 || minute > 59 || second > 60) {
+            return INVALID;
+        }
+
+        int i = 19;
+        int millis = 0;
+        if (i < length && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+            i++;
+            int scale = 100;
+            int start = i;
+            while (i < length) {
+                int d = s.charAt(i) - '0';
+                if (d < 0 || d > 9) break;
+                millis += d * scale;
+                scale /= 10;
+                i++;
+            }
+            if (i == start) return INVALID;
+        }
+
+        long offsetMillis = 0;
+        if (i < length) {
+            char zone = s.charAt(i);
+            if (zone == 'Z' || zone == 'z') {
+                i++;
+            } else if (zone == '+' || zone == '-') {
+                int offsetHours = digits(s, i + 1, 2);
+                if (offsetHours < 0) return INVALID;
+                i += 3;
+                int offsetMinutes = 0;
+                if (i < length) {
+                    if (s.charAt(i) == ':') i++;
+                    offsetMinutes = digits(s, i, 2);
+                    if (offsetMinutes < 0) return INVALID;
+                    i += 2;
+                }
+                offsetMillis = (offsetHours * 60L + offsetMinutes) * 60000L;
+                if (zone == '-') offsetMillis = -offsetMillis;
+            } else {
+                return INVALID;
+            }
+        }
+        if (i != length) return INVALID;
+
+        long days = daysFromCivil(year, month, day);
+        return days * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L
+                + millis
+                - offsetMillis;
+    }
+
+    /**
+     * Writes UTC timestamps as {@code yyyy-MM-ddTHH:mm:ssZ} into a reused buffer.
+     * The date part is only recomputed when the day changes, which for a track
+     * means once or twice per file instead of once per point.
+     */
+    public static final class Formatter {
+        public static final int LENGTH = 20;
+
+        private final char[] chars = "0000-00-00T00:00:00Z".toCharArray();
+        private long day = Long.MIN_VALUE;
+        private long second = Long.MIN_VALUE;
+
+        /** Returns the shared buffer, valid until the next call. */
+        public char[] format(long millis) {
+            long epochSecond = Math.floorDiv(millis, 1000L);
+            if (epochSecond == second) return chars;
+            second = epochSecond;
+
+            long epochDay = Math.floorDiv(epochSecond, 86400L);
+            if (epochDay != day) {
+                day = epochDay;
+                writeDate(epochDay);
+            }
+
+            int secondOfDay = (int) (epochSecond - epochDay * 86400L);
+            put(secondOfDay / 3600, 11, 2);
+            put(secondOfDay / 60 % 60, 14, 2);
+            put(secondOfDay % 60, 17, 2);
+            return chars;
+        }
+
+        // Inverse of daysFromCivil
+        private void writeDate(long epochDay) {
+            long z = epochDay + 719468;
+            long era = (z >= 0 ? z : z - 146096) / 146097;
+            int dayOfEra = (int) (z - era * 146097);
+            int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            int mp = (5 * dayOfYear + 2) / 153;
+            int dayOfMonth = dayOfYear - (153 * mp + 2) / 5 + 1;
+            int month = mp < 10 ? mp + 3 : mp - 9;
+            long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+            put((int) year, 0, 4);
+            put(month, 5, 2);
+            put(dayOfMonth, 8, 2);
+        }
+
+        private void put(int value, int offset, int width) {
+            for (int i = offset + width - 1; i >= offset; i--) {
+                chars[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date (Howard Hinnant's algorithm)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Parses count ASCII digits starting at start, or returns -1
+    private static int digits(CharSequence s, int start, int count) {
+        if (start + count > s.length()) return -1;
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
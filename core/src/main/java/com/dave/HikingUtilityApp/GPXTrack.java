@@ -0,0 +1,25 @@
+package com.dave.HikingUtilityApp;
+
+import java.util.Date;
+
+public class GPXTrack {
+    public String name;
+    public TrackBuffer points;
+    public String description;
+    public Date createdDate;
+
+    public GPXTrack(String name) {
+        this.name = name;
+        this.points = new TrackBuffer();
+        this.createdDate = new Date();
+    }
+
+    public double getTotalDistance() {
+        return points.pathLength();
+    }
+
+    public long getDuration() {
+        if (points.size() < 2) return 0;
+        return points.getTimestamp(points.size() - 1) - points.getTimestamp(0);
+    }
+}
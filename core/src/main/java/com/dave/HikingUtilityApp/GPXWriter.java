@@ -0,0 +1,125 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming GPX writer. Points go straight to the underlying writer as they
+ * are produced, so exporting a track never holds the whole document in memory.
+ *
+ * Output matches the layout GPXManager.exportTrackToGPX has always
+ * produced: {@link #beginTrack}, any number of {@link #writePoint} calls, then
+ * {@link #endTrack}.
+ */
+public class GPXWriter implements Closeable {
+
+    private final Writer out;
+    private final GPXTime.Formatter timeFormatter = new GPXTime.Formatter();
+
+    // Reused for number formatting so each point doesn't create Strings
+    private final StringBuilder scratch = new StringBuilder(128);
+    private char[] scratchChars = new char[128];
+
+    public GPXWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeTrack(GPXTrack track) throws IOException {
+        writeTrack(track.name, track.description, track.createdDate.getTime(), track.points);
+    }
+
+    public void writeTrack(String name, String description, long createdTime, TrackView points) throws IOException {
+        beginTrack(name, description, createdTime);
+        for (int i = 0; i < points.size(); i++) {
+            writePoint(points.getLatitude(i), points.getLongitude(i), points.getElevation(i), points.getTimestamp(i));
+        }
+        endTrack();
+    }
+
+    public void beginTrack(String name, String description, long createdTime) throws IOException {
+        // GPX Header
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<gpx version=\"1.1\" creator=\"HikingUtilityApp\"\n");
+        out.write(" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+
+        // Metadata
+        out.write(" <metadata>\n");
+        out.write(" <name>");
+        writeEscaped(name);
+        out.write("</name>\n");
+        out.write(" <time>");
+        writeTime(createdTime);
+        out.write("</time>\n");
+        out.write(" </metadata>\n");
+
+        // Track
+        out.write(" <trk>\n");
+        out.write(" <name>");
+        writeEscaped(name);
+        out.write("</name>\n");
+        if (description != null) {
+            out.write(" <desc>");
+            writeEscaped(description);
+            out.write("</desc>\n");
+        }
+        out.write(" <trkseg>\n");
+    }
+
+    public void writePoint(double latitude, double longitude, double elevation, long timestamp) throws IOException {
+        scratch.setLength(0);
+        scratch.append(" <trkpt lat=\"").append(latitude)
+                .append("\" lon=\"").append(longitude).append("\">\n");
+
+        if (elevation != 0) {
+            scratch.append(" <ele>").append(elevation).append("</ele>\n");
+        }
+        // Writer.append(CharSequence) would go through toString(); copy the chars instead
+        int length = scratch.length();
+        if (length > scratchChars.length) scratchChars = new char[length];
+        scratch.getChars(0, length, scratchChars, 0);
+        out.write(scratchChars, 0, length);
+
+        out.write(" <time>");
+        writeTime(timestamp);
+        out.write("</time>\n");
+        out.write(" </trkpt>\n");
+    }
+
+    public void endTrack() throws IOException {
+        out.write(" </trkseg>\n");
+        out.write(" </trk>\n");
+        out.write("</gpx>\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeTime(long millis) throws IOException {
+        out.write(timeFormatter.format(millis), 0, GPXTime.Formatter.LENGTH);
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        if (text == null) {
+            out.write("null");
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&': entity = "&amp;"; break;
+                case '<': entity = "&lt;"; break;
+                case '>': entity = "&gt;"; break;
+                default: continue;
+            }
+            out.write(text, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,142 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Distances along runs of fixes, on primitive coordinates.
+ *
+ * {@link #haversine} is the reference. The other kernels avoid most of its
+ * trig: cos(latitude) is computed once per point instead of twice per pair,
+ * and extrapolated from a nearby anchor rather than calling Math.cos while
+ * the latitude stays close. Segments shorter than {@link #FAST_PATH_RADIANS}
+ * use the small-angle form of the haversine, one square root instead of two
+ * sines, two square roots and an atan2. Its relative error grows with the
+ * square of the segment's angle and stays under 1e-7 for anything the fast
+ * path takes; longer segments get the full formula with the cached cosines.
+ */
+public final class Geodesy {
+
+    public static final double EARTH_RADIUS = 6371000; // meters
+
+    // About 6 km in either direction; beyond it the exact formula is used
+    static final double FAST_PATH_RADIANS = 1e-3;
+
+    // Move the cosine anchor after ~30 km of latitude; extrapolation error stays under 3e-11
+    private static final double COSINE_ANCHOR_RADIANS = 5e-3;
+
+    /**
+     * Walks a track one fix at a time, returning each new segment's length.
+     * Used where points arrive one by one, like the running totals in {@link TrackStats}.
+     */
+    public static final class Path {
+        private boolean started;
+        private double lastPhi;
+        private double lastLambda;
+        private double lastCos;
+
+        private boolean anchored;
+        private double anchorPhi;
+        private double anchorCos;
+        private double anchorSin;
+
+        /** Meters from the previous fix to this one; 0 for the first. */
+        public double next(double latitude, double longitude) {
+            double phi = Math.toRadians(latitude);
+            double lambda = Math.toRadians(longitude);
+            double cos = cosine(phi);
+
+            double distance = started ? segment(lastPhi, lastLambda, lastCos, phi, lambda, cos) : 0;
+            started = true;
+            lastPhi = phi;
+            lastLambda = lambda;
+            lastCos = cos;
+            return distance;
+        }
+
+        public void reset() {
+            started = false;
+            anchored = false;
+        }
+
+        // Third-order Taylor expansion of cos around the anchor. The cubic term matters near
+        // the poles, where the error of a second-order one is large next to cos itself.
+        private double cosine(double phi) {
+            double delta = phi - anchorPhi;
+            if (!anchored || Math.abs(delta) > COSINE_ANCHOR_RADIANS) {
+                anchored = true;
+                anchorPhi = phi;
+                anchorCos = Math.cos(phi);
+                anchorSin = Math.sin(phi);
+                return anchorCos;
+            }
+            double delta2 = delta * delta;
+            return anchorCos * (1 - delta2 * 0.5) - anchorSin * delta * (1 - delta2 / 6);
+        }
+    }
+
+    private Geodesy() {}
+
+    /**
+     * Great-circle distance in meters; exact but the slowest option.
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS * c;
+    }
+
+    /**
+     * Distance in meters between two fixes, taking the fast path when they are close.
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        return segment(phi1, Math.toRadians(lon1), Math.cos(phi1), phi2, Math.toRadians(lon2), Math.cos(phi2));
+    }
+
+    /**
+     * Initial bearing from the first fix to the second, in degrees clockwise from north (0-360).
+     */
+    public static double bearing(double lat1, double lon1, double lat2, double lon2) {
+        double deltaLon = Math.toRadians(lon2 - lon1);
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+
+        double y = Math.sin(deltaLon) * Math.cos(lat2Rad);
+        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) -
+                Math.sin(lat1Rad) * Math.cos(lat2Rad) * Math.cos(deltaLon);
+
+        double bearing = Math.toDegrees(Math.atan2(y, x));
+        return (bearing + 360) % 360;
+    }
+
+    /**
+     * Length in meters of the polyline through points {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    public static double pathLength(double[] latitudes, double[] longitudes, int from, int to) {
+        Path path = new Path();
+        double total = 0;
+        for (int i = from; i < to; i++) total += path.next(latitudes[i], longitudes[i]);
+        return total;
+    }
+
+    // Angles in radians, cosines of the two latitudes supplied by the caller
+    private static double segment(double phi1, double lambda1, double cos1,
+                                  double phi2, double lambda2, double cos2) {
+        double dPhi = phi2 - phi1;
+        double dLambda = lambda2 - lambda1;
+        if (dLambda > Math.PI) dLambda -= 2 * Math.PI;
+        else if (dLambda < -Math.PI) dLambda += 2 * Math.PI;
+
+        if (Math.abs(dPhi) < FAST_PATH_RADIANS && Math.abs(dLambda) < FAST_PATH_RADIANS) {
+            return EARTH_RADIUS * Math.sqrt(dPhi * dPhi + cos1 * cos2 * dLambda * dLambda);
+        }
+
+        double sinPhi = Math.sin(dPhi * 0.5);
+        double sinLambda = Math.sin(dLambda * 0.5);
+        double a = sinPhi * sinPhi + cos1 * cos2 * sinLambda * sinLambda;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,251 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Picks how often to ask for GPS fixes while recording.
+ *
+ * Fixes are requested often enough to land about {@link #TARGET_SPACING_METERS}
+ * apart at the current speed, in a few fixed steps so the request isn't
+ * re-registered for every small change. A turn asks for the fastest rate
+ * until the heading settles, so bends aren't cut. Standing still for
+ * {@link #STATIONARY_AFTER_MS} drops to one fix every
+ * {@link #STATIONARY_INTERVAL_MS}; any fix that leaves the spot switches back
+ * at once.
+ *
+ * It also keeps the fix count and a rough GPS power estimate. The power model
+ * is deliberately simple: the receiver stays on for short intervals and
+ * duty-cycles for long ones. It is for comparing settings, not a measurement.
+ *
+ * Times are on one monotonic clock in milliseconds, e.g. elapsedRealtime.
+ */
+public class SamplingGovernor {
+
+    public static final double TARGET_SPACING_METERS = 15;
+
+    // Request steps while moving; the slowest also covers a slow walk
+    private static final long[] MOVING_INTERVALS_MS = {2000, 5000, 10_000};
+    public static final long STATIONARY_INTERVAL_MS = 30_000;
+
+    private static final double STATIONARY_RADIUS_METERS = 15;
+    public static final long STATIONARY_AFTER_MS = 60_000;
+
+    // Heading is compared over stretches this long, so GPS jitter doesn't read as turning
+    private static final double HEADING_STRETCH_METERS = 25;
+    private static final double TURN_DEGREES = 45;
+
+    // Fixes closer than this fraction of the expected travel are left to the platform to drop
+    private static final double DISPLACEMENT_FRACTION = 0.25;
+
+    // Slower moving steps wait this long before being taken, so brief slowdowns don't churn
+    private static final long SLOWDOWN_HOLD_MS = 15_000;
+
+    private static final double SPEED_SMOOTHING = 0.3;
+
+    // Power model: receiver draw while tracking, how long it stays on around each fix,
+    // and the CPU wake-up that delivers it
+    private static final double GPS_ACTIVE_MW = 60;
+    private static final long GPS_HOT_WINDOW_MS = 5000;
+    private static final double FIX_WAKEUP_MJ = 15;
+
+    private long intervalMs;
+    private float displacementMeters;
+    private long lastChangeTime;
+
+    private boolean hasFix;
+    private double lastLatitude, lastLongitude;
+    private long lastFixTime;
+    private double speed; // m/s, smoothed
+
+    private boolean stationary;
+    private boolean hasAnchor;
+    private double anchorLatitude, anchorLongitude;
+    private long anchorTime;
+
+    private boolean hasHeading;
+    private double headingLatitude, headingLongitude;
+    private double heading;
+    private boolean turning;
+
+    private boolean running;
+    private long accountedTime;
+    private long recordingMillis;
+    private double energyMillijoules;
+    private int fixCount;
+
+    public SamplingGovernor() {
+        reset();
+    }
+
+    public long getIntervalMillis() {
+        return intervalMs;
+    }
+
+    public float getMinDistanceMeters() {
+        return displacementMeters;
+    }
+
+    public boolean isStationary() {
+        return stationary;
+    }
+
+    /**
+     * Forgets movement and accounting, for a new recording.
+     */
+    public void reset() {
+        running = false;
+        hasFix = false;
+        hasAnchor = false;
+        hasHeading = false;
+        stationary = false;
+        turning = false;
+        speed = 0;
+        recordingMillis = 0;
+        energyMillijoules = 0;
+        fixCount = 0;
+        // The first fix comes quickly, then the rate settles to the walk
+        intervalMs = MOVING_INTERVALS_MS[0];
+        displacementMeters = 0;
+    }
+
+    /**
+     * Starts or resumes accounting; movement state starts over after a gap.
+     */
+    public void start(long now) {
+        running = true;
+        accountedTime = now;
+        lastChangeTime = now;
+        hasFix = false;
+        hasAnchor = false;
+        hasHeading = false;
+        stationary = false;
+        turning = false;
+        intervalMs = MOVING_INTERVALS_MS[0];
+        displacementMeters = 0;
+    }
+
+    public void stop(long now) {
+        account(now);
+        running = false;
+    }
+
+    /**
+     * Takes one delivered fix. {@code reportedSpeed} is the receiver's speed in m/s, or negative if unknown.
+     *
+     * @return whether the request changed and needs re-registering
+     */
+    public boolean onFix(double latitude, double longitude, double reportedSpeed, long time) {
+        account(time);
+        fixCount++;
+
+        double measured = reportedSpeed;
+        if (hasFix && measured < 0) {
+            double seconds = (time - lastFixTime) / 1000.0;
+            measured = seconds > 0 ? Geodesy.distance(lastLatitude, lastLongitude, latitude, longitude) / seconds : -1;
+        }
+        if (measured >= 0) speed = hasFix ? speed + SPEED_SMOOTHING * (measured - speed) : measured;
+        hasFix = true;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastFixTime = time;
+
+        updateStationary(latitude, longitude, time);
+        updateHeading(latitude, longitude);
+
+        long interval;
+        float displacement;
+        if (stationary) {
+            interval = STATIONARY_INTERVAL_MS;
+            displacement = 0;
+        } else if (turning) {
+            interval = MOVING_INTERVALS_MS[0];
+            displacement = 0;
+        } else {
+            interval = movingInterval(speed);
+            displacement = (float) (DISPLACEMENT_FRACTION * speed * interval / 1000);
+        }
+
+        if (interval == intervalMs) return false;
+        // Speeding up, stopping and leaving a stop take effect at once; slowing down waits
+        if (interval > intervalMs && !stationary && time - lastChangeTime < SLOWDOWN_HOLD_MS) return false;
+
+        intervalMs = interval;
+        displacementMeters = displacement;
+        lastChangeTime = time;
+        return true;
+    }
+
+    public int getFixCount() {
+        return fixCount;
+    }
+
+    public double getFixesPerKm(double meters) {
+        return meters > 0 ? fixCount * 1000 / meters : 0;
+    }
+
+    /**
+     * Average estimated GPS draw over the time accounted so far, in milliwatts.
+     */
+    public double getEstimatedPowerMw() {
+        return recordingMillis > 0 ? energyMillijoules / (recordingMillis / 1000.0) : 0;
+    }
+
+    public double getEstimatedEnergyMwh() {
+        return energyMillijoules / 3600;
+    }
+
+    // Charges the time since the last call at the draw of the request that was in force
+    private void account(long now) {
+        if (!running || now <= accountedTime) return;
+        long elapsed = now - accountedTime;
+        accountedTime = now;
+        recordingMillis += elapsed;
+
+        energyMillijoules += estimatePowerMw(intervalMs) * elapsed / 1000;
+    }
+
+    /**
+     * Modelled GPS draw, in milliwatts, of a request for one fix every {@code intervalMs}.
+     */
+    public static double estimatePowerMw(long intervalMs) {
+        double duty = Math.min(1, (double) GPS_HOT_WINDOW_MS / intervalMs);
+        return GPS_ACTIVE_MW * duty + FIX_WAKEUP_MJ * 1000 / intervalMs;
+    }
+
+    private void updateStationary(double latitude, double longitude, long time) {
+        if (hasAnchor && Geodesy.distance(anchorLatitude, anchorLongitude, latitude, longitude) < STATIONARY_RADIUS_METERS) {
+            if (time - anchorTime >= STATIONARY_AFTER_MS) stationary = true;
+            return;
+        }
+        stationary = false;
+        hasAnchor = true;
+        anchorLatitude = latitude;
+        anchorLongitude = longitude;
+        anchorTime = time;
+    }
+
+    private void updateHeading(double latitude, double longitude) {
+        if (!hasHeading) {
+            hasHeading = true;
+            headingLatitude = latitude;
+            headingLongitude = longitude;
+            heading = Double.NaN;
+            return;
+        }
+        if (Geodesy.distance(headingLatitude, headingLongitude, latitude, longitude) < HEADING_STRETCH_METERS) return;
+
+        double next = Geodesy.bearing(headingLatitude, headingLongitude, latitude, longitude);
+        if (!Double.isNaN(heading)) {
+            double change = Math.abs(next - heading) % 360;
+            turning = Math.min(change, 360 - change) > TURN_DEGREES;
+        }
+        heading = next;
+        headingLatitude = latitude;
+        headingLongitude = longitude;
+    }
+
+    private static long movingInterval(double speed) {
+        for (int i = MOVING_INTERVALS_MS.length - 1; i > 0; i--) {
+            if (speed * MOVING_INTERVALS_MS[i] / 1000 <= TARGET_SPACING_METERS) return MOVING_INTERVALS_MS[i];
+        }
+        return MOVING_INTERVALS_MS[0];
+    }
+}
@@ -0,0 +1,198 @@
+package com.dave.HikingUtilityApp;
+
+import java.util.Arrays;
+
+/**
+ * Growable columnar point storage: parallel primitive arrays for latitude,
+ * longitude, elevation and time instead of one object per point.
+ *
+ * A point costs 32 bytes here, once {@link #trimToSize()} has dropped the
+ * growth slack, against roughly 70 for the seven-field point objects in an
+ * ArrayList this replaced. Appending never allocates except when a column
+ * has to grow.
+ *
+ * One thread appends; any thread may take a {@link #snapshot()}. Points are
+ * never modified once written and growing or clearing swaps in new arrays, so
+ * a snapshot is just the current arrays plus a length: no copying, no locks.
+ */
+public class TrackBuffer implements TrackView {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    // One set of columns. Replaced, never shrunk or rewritten, when the buffer grows or is cleared.
+    private static final class Columns {
+        final double[] latitudes;
+        final double[] longitudes;
+        final double[] elevations;
+        final long[] timestamps;
+        final int generation;
+        volatile int size;
+
+        Columns(int capacity, int generation) {
+            this.latitudes = new double[capacity];
+            this.longitudes = new double[capacity];
+            this.elevations = new double[capacity];
+            this.timestamps = new long[capacity];
+            this.generation = generation;
+        }
+
+        Columns(Columns from, int capacity) {
+            this.latitudes = Arrays.copyOf(from.latitudes, capacity);
+            this.longitudes = Arrays.copyOf(from.longitudes, capacity);
+            this.elevations = Arrays.copyOf(from.elevations, capacity);
+            this.timestamps = Arrays.copyOf(from.timestamps, capacity);
+            this.generation = from.generation;
+            this.size = from.size;
+        }
+    }
+
+    /**
+     * An immutable view of the buffer at one moment. Safe to read from any thread.
+     */
+    public static final class Snapshot implements TrackView {
+        private final Columns columns;
+        private final int size;
+
+        private Snapshot(Columns columns, int size) {
+            this.columns = columns;
+            this.size = size;
+        }
+
+        /** Changes whenever the buffer is cleared, i.e. a new track was started. */
+        public int getGeneration() {
+            return columns.generation;
+        }
+
+        /**
+         * True if this snapshot is the same track as {@code earlier} with zero or more
+         * points appended, so a consumer only needs to read from {@code earlier.size()}.
+         */
+        public boolean continues(Snapshot earlier) {
+            return earlier != null && earlier.columns.generation == columns.generation && earlier.size <= size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public double getLatitude(int index) {
+            return columns.latitudes[index];
+        }
+
+        @Override
+        public double getLongitude(int index) {
+            return columns.longitudes[index];
+        }
+
+        @Override
+        public double getElevation(int index) {
+            return columns.elevations[index];
+        }
+
+        @Override
+        public long getTimestamp(int index) {
+            return columns.timestamps[index];
+        }
+    }
+
+    private volatile Columns columns;
+
+    public TrackBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TrackBuffer(int initialCapacity) {
+        columns = new Columns(Math.max(initialCapacity, 1), 0);
+    }
+
+    public void append(double latitude, double longitude, double elevation, long timestamp) {
+        Columns c = columns;
+        int size = c.size;
+        if (size == c.latitudes.length) c = grow(size + 1);
+        c.latitudes[size] = latitude;
+        c.longitudes[size] = longitude;
+        c.elevations[size] = elevation;
+        c.timestamps[size] = timestamp;
+        c.size = size + 1; // publishes the point to snapshot readers
+    }
+
+    public void addAll(TrackView other) {
+        int count = other.size();
+        Columns c = columns;
+        int size = c.size;
+        if (size + count > c.latitudes.length) c = grow(size + count);
+        for (int i = 0; i < count; i++) {
+            c.latitudes[size + i] = other.getLatitude(i);
+            c.longitudes[size + i] = other.getLongitude(i);
+            c.elevations[size + i] = other.getElevation(i);
+            c.timestamps[size + i] = other.getTimestamp(i);
+        }
+        c.size = size + count;
+    }
+
+    public void clear() {
+        Columns c = columns;
+        columns = new Columns(DEFAULT_CAPACITY, c.generation + 1);
+    }
+
+    /**
+     * Drops the spare capacity left by growing, for a track that is complete.
+     * Like appending, only the writing thread may call this; snapshots already
+     * taken keep the old columns.
+     */
+    public void trimToSize() {
+        Columns c = columns;
+        if (c.size < c.latitudes.length) columns = new Columns(c, Math.max(c.size, 1));
+    }
+
+    /**
+     * Zero-copy, thread-safe view of everything appended so far.
+     */
+    public Snapshot snapshot() {
+        Columns c = columns;
+        return new Snapshot(c, c.size);
+    }
+
+    @Override
+    public int size() {
+        return columns.size;
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return columns.latitudes[index];
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return columns.longitudes[index];
+    }
+
+    @Override
+    public double getElevation(int index) {
+        return columns.elevations[index];
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return columns.timestamps[index];
+    }
+
+    /**
+     * Length of the whole track in meters, straight off the columns.
+     */
+    public double pathLength() {
+        Columns c = columns;
+        return Geodesy.pathLength(c.latitudes, c.longitudes, 0, c.size);
+    }
+
+    private Columns grow(int minCapacity) {
+        Columns c = columns;
+        int capacity = Math.max(minCapacity, c.latitudes.length + (c.latitudes.length >> 1));
+        Columns grown = new Columns(c, capacity);
+        columns = grown;
+        return grown;
+    }
+}
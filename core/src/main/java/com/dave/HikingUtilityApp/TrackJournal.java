@@ -0,0 +1,231 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal for a track that is still being recorded.
+ *
+ * Every fix is one fixed-size record written straight to the file, so adding a
+ * point costs the same however long the hike is, and a killed process loses
+ * nothing that reached the OS. fsync is batched to keep the flash quiet.
+ *
+ * Layout: header (magic, version, start time, track name) followed by 36-byte
+ * records of lat, lon, time, elevation and a CRC32 of the record. A torn last
+ * record is detected by its checksum and dropped on {@link #open(File)}.
+ */
+public class TrackJournal implements Closeable {
+
+    public interface RecordVisitor {
+        void onRecord(double latitude, double longitude, double elevation, long timestamp) throws IOException;
+    }
+
+    private static final int MAGIC = 0x48544A31; // "HTJ1"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 36;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - 4;
+
+    // fsync after this many records or this long, whichever comes first
+    private static final int SYNC_EVERY_RECORDS = 10;
+    private static final long SYNC_INTERVAL_NANOS = 30_000_000_000L;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final String trackName;
+    private final long startTime;
+    private final long dataStart;
+
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private int size;
+    private int unsynced;
+    private long lastSync = System.nanoTime();
+
+    private TrackJournal(File file, RandomAccessFile raf, String trackName, long startTime, long dataStart, int size) {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.trackName = trackName;
+        this.startTime = startTime;
+        this.dataStart = dataStart;
+        this.size = size;
+    }
+
+    /**
+     * Starts a new journal, replacing anything already at {@code file}.
+     */
+    public static TrackJournal create(File file, String trackName, long startTime) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        byte[] name = trackName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(20 + name.length);
+        header.putInt(MAGIC).putInt(VERSION).putLong(startTime).putInt(name.length).put(name);
+        header.flip();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            while (header.hasRemaining()) channel.write(header);
+            channel.force(true);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return new TrackJournal(file, raf, trackName, startTime, 20 + name.length, 0);
+    }
+
+    /**
+     * Reopens an existing journal for appending, e.g. after the process was killed.
+     * Any partial or corrupt tail is cut off.
+     */
+    public static TrackJournal open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(20);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.remaining() < 20 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a track journal: " + file);
+            }
+            long startTime = header.getLong();
+            int nameLength = header.getInt();
+            if (nameLength < 0 || 20L + nameLength > channel.size()) {
+                throw new IOException("Corrupt track journal header: " + file);
+            }
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            readFully(channel, name, 20);
+            String trackName = new String(name.array(), StandardCharsets.UTF_8);
+
+            long dataStart = 20L + nameLength;
+            TrackJournal journal = new TrackJournal(file, raf, trackName, startTime, dataStart, 0);
+            journal.size = journal.countValidRecords();
+            channel.truncate(dataStart + (long) journal.size * RECORD_SIZE);
+            return journal;
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public void append(double latitude, double longitude, double elevation, long timestamp) throws IOException {
+        record.clear();
+        record.putDouble(latitude).putDouble(longitude).putLong(timestamp).putDouble(elevation);
+        crc.reset();
+        crc.update(record.array(), 0, PAYLOAD_SIZE);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        long position = dataStart + (long) size * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        size++;
+
+        if (++unsynced >= SYNC_EVERY_RECORDS || System.nanoTime() - lastSync >= SYNC_INTERVAL_NANOS) {
+            sync();
+        }
+    }
+
+    public void sync() throws IOException {
+        if (unsynced == 0) return;
+        channel.force(false);
+        unsynced = 0;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Streams every stored record in order without loading them all at once.
+     */
+    public void replay(RecordVisitor visitor) throws IOException {
+        ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * 256);
+        long position = dataStart;
+        long end = dataStart + (long) size * RECORD_SIZE;
+        while (position < end) {
+            batch.clear();
+            batch.limit((int) Math.min(batch.capacity(), end - position));
+            readFully(channel, batch, position);
+            batch.flip();
+            position += batch.limit();
+            while (batch.remaining() >= RECORD_SIZE) {
+                double latitude = batch.getDouble();
+                double longitude = batch.getDouble();
+                long timestamp = batch.getLong();
+                double elevation = batch.getDouble();
+                batch.getInt(); // checksum, already verified on open
+                visitor.onRecord(latitude, longitude, elevation, timestamp);
+            }
+        }
+    }
+
+    public String getTrackName() {
+        return trackName;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Closes the journal and removes its file, once the track has been saved elsewhere.
+     */
+    public void delete() throws IOException {
+        close();
+        file.delete();
+    }
+
+    private int countValidRecords() throws IOException {
+        long available = (channel.size() - dataStart) / RECORD_SIZE;
+        ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * 256);
+        int valid = 0;
+        long position = dataStart;
+        while (valid < available) {
+            batch.clear();
+            batch.limit((int) Math.min(batch.capacity(), (available - valid) * RECORD_SIZE));
+            readFully(channel, batch, position);
+            batch.flip();
+            position += batch.limit();
+            for (int offset = 0; offset + RECORD_SIZE <= batch.limit(); offset += RECORD_SIZE) {
+                crc.reset();
+                crc.update(batch.array(), offset, PAYLOAD_SIZE);
+                if ((int) crc.getValue() != batch.getInt(offset + PAYLOAD_SIZE)) return valid;
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) break;
+            position += read;
+        }
+    }
+}
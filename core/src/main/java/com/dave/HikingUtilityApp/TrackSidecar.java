@@ -0,0 +1,339 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Compact binary copy of a saved track, kept next to its .gpx as .trk.
+ *
+ * GPX stays the interchange format; the sidecar only exists so reopening a
+ * track is a memory-mapped decode instead of an XML parse. It is tied to the
+ * GPX file's length and lastModified and ignored as soon as either changes.
+ *
+ * Layout (big-endian):
+ *   header  magic, version, gpx length + lastModified, created time, point
+ *           count, distance, duration, moving time, gain, loss, bounding box,
+ *           name and description as length-prefixed UTF-8 (-1 for null)
+ *   points  per point, zigzag varint deltas of latitude and longitude in
+ *           1e-7 degrees, elevation in centimetres and time in milliseconds
+ *
+ * A typical hiking fix takes 6 to 10 bytes against ~150 in GPX. Coordinates
+ * are rounded to about a centimetre, far below GPS precision.
+ */
+public final class TrackSidecar {
+
+    public static final String EXTENSION = ".trk";
+
+    private static final int MAGIC = 0x48545243; // "HTRC"
+    private static final int VERSION = 1;
+
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final double ELEVATION_SCALE = 100;
+
+    // Four varints of at least one byte each
+    private static final int MIN_POINT_BYTES = 4;
+
+    // Header fields from the GPX length to the bounding box, between the version and the name
+    private static final int TOTALS_OFFSET = 8;
+    private static final int TOTALS_BYTES = 100;
+
+    /**
+     * Everything before the point data. Cheap to read on its own for listings.
+     */
+    public static final class Header {
+        public final String name;
+        public final String description;
+        public final long createdTime;
+        public final int pointCount;
+        public final double distance;
+        public final long duration;
+        public final long movingTime;
+        public final double elevationGain;
+        public final double elevationLoss;
+        public final double minLatitude;
+        public final double minLongitude;
+        public final double maxLatitude;
+        public final double maxLongitude;
+
+        final long sourceLength;
+        final long sourceModified;
+
+        private Header(ByteBuffer in) {
+            sourceLength = in.getLong();
+            sourceModified = in.getLong();
+            createdTime = in.getLong();
+            pointCount = in.getInt();
+            distance = in.getDouble();
+            duration = in.getLong();
+            movingTime = in.getLong();
+            elevationGain = in.getDouble();
+            elevationLoss = in.getDouble();
+            minLatitude = in.getDouble();
+            minLongitude = in.getDouble();
+            maxLatitude = in.getDouble();
+            maxLongitude = in.getDouble();
+            name = readString(in);
+            description = readString(in);
+        }
+
+        /** Stats for the track's points, from the totals stored here rather than a pass over them. */
+        TrackStats toStats(TrackView points) {
+            return TrackStats.of(points, distance, duration, movingTime, elevationGain, elevationLoss,
+                    minLatitude, minLongitude, maxLatitude, maxLongitude);
+        }
+    }
+
+    /**
+     * A track read back from its sidecar, with its stats.
+     */
+    public static final class Contents {
+        public final GPXTrack track;
+        public final TrackStats stats;
+
+        private Contents(GPXTrack track, TrackStats stats) {
+            this.track = track;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Writes a sidecar point by point, for a track that is never held in memory
+     * whole. The count and totals in the header are filled in by {@link #finish};
+     * closing without finishing deletes the partial file.
+     */
+    public static final class Writer implements Closeable {
+        private final File gpxFile;
+        private final long createdTime;
+        private final File target;
+        private final File temp;
+        private final DataOutputStream out;
+        private int count;
+        private long lastLat, lastLon, lastEle, lastTime;
+        private boolean finished;
+
+        public Writer(File gpxFile, String name, String description, long createdTime) throws IOException {
+            this.gpxFile = gpxFile;
+            this.createdTime = createdTime;
+            // Written beside the target and renamed over it, so readers never see half a file
+            target = sidecarFor(gpxFile);
+            temp = new File(target.getParentFile(), target.getName() + ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(new byte[TOTALS_BYTES]);
+                writeString(out, name);
+                writeString(out, description);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public void writePoint(double latitude, double longitude, double elevation, long timestamp)
+                throws IOException {
+            long lat = Math.round(latitude * COORDINATE_SCALE);
+            long lon = Math.round(longitude * COORDINATE_SCALE);
+            long ele = Math.round(elevation * ELEVATION_SCALE);
+
+            writeVarLong(out, lat - lastLat);
+            writeVarLong(out, lon - lastLon);
+            writeVarLong(out, ele - lastEle);
+            writeVarLong(out, timestamp - lastTime);
+
+            lastLat = lat;
+            lastLon = lon;
+            lastEle = ele;
+            lastTime = timestamp;
+            count++;
+        }
+
+        /**
+         * Completes the sidecar once the GPX file is closed, since the header
+         * records its length and lastModified.
+         */
+        public void finish(TrackStats stats) throws IOException {
+            out.close();
+
+            ByteBuffer totals = ByteBuffer.allocate(TOTALS_BYTES);
+            totals.putLong(gpxFile.length());
+            totals.putLong(gpxFile.lastModified());
+            totals.putLong(createdTime);
+            totals.putInt(count);
+            totals.putDouble(stats.getTotalDistance());
+            totals.putLong(stats.getDuration());
+            totals.putLong(stats.getMovingTime());
+            totals.putDouble(stats.getElevationGain());
+            totals.putDouble(stats.getElevationLoss());
+            totals.putDouble(stats.getMinLatitude());
+            totals.putDouble(stats.getMinLongitude());
+            totals.putDouble(stats.getMaxLatitude());
+            totals.putDouble(stats.getMaxLongitude());
+            totals.flip();
+            try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+                FileChannel channel = raf.getChannel();
+                while (totals.hasRemaining()) {
+                    channel.write(totals, TOTALS_OFFSET + totals.position());
+                }
+            }
+
+            if (!temp.renameTo(target)) throw new IOException("Could not write " + target);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished) return;
+            try {
+                out.close();
+            } finally {
+                temp.delete();
+            }
+        }
+    }
+
+    private TrackSidecar() {}
+
+    public static File sidecarFor(File gpxFile) {
+        String name = gpxFile.getName();
+        if (name.toLowerCase().endsWith(".gpx")) name = name.substring(0, name.length() - 4);
+        return new File(gpxFile.getParentFile(), name + EXTENSION);
+    }
+
+    /**
+     * Writes the sidecar for a GPX file that has just been written from {@code track}.
+     */
+    public static void write(File gpxFile, GPXTrack track, TrackStats stats) throws IOException {
+        TrackView points = track.points;
+        try (Writer writer = new Writer(gpxFile, track.name, track.description, track.createdDate.getTime())) {
+            for (int i = 0; i < points.size(); i++) {
+                writer.writePoint(points.getLatitude(i), points.getLongitude(i),
+                        points.getElevation(i), points.getTimestamp(i));
+            }
+            writer.finish(stats);
+        }
+    }
+
+    /**
+     * Header of the sidecar for {@code gpxFile}, or null if there is none or it is stale.
+     */
+    public static Header readHeader(File gpxFile) throws IOException {
+        File sidecar = sidecarFor(gpxFile);
+        if (!sidecar.isFile()) return null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(sidecar, "r")) {
+            MappedByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            return readValidHeader(in, gpxFile);
+        }
+    }
+
+    /**
+     * The track stored in the sidecar for {@code gpxFile}, or null if there is none or it is stale.
+     */
+    public static GPXTrack read(File gpxFile) throws IOException {
+        Contents contents = readContents(gpxFile);
+        return contents != null ? contents.track : null;
+    }
+
+    /**
+     * Like {@link #read}, plus stats rebuilt from the header's totals.
+     */
+    public static Contents readContents(File gpxFile) throws IOException {
+        File sidecar = sidecarFor(gpxFile);
+        if (!sidecar.isFile()) return null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(sidecar, "r")) {
+            MappedByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            Header header = readValidHeader(in, gpxFile);
+            if (header == null) return null;
+
+            GPXTrack track = new GPXTrack(header.name);
+            track.description = header.description;
+            track.createdDate = new Date(header.createdTime);
+            track.points = new TrackBuffer(header.pointCount);
+
+            long lat = 0, lon = 0, ele = 0, time = 0;
+            for (int i = 0; i < header.pointCount; i++) {
+                lat += readVarLong(in);
+                lon += readVarLong(in);
+                ele += readVarLong(in);
+                time += readVarLong(in);
+                track.points.append(lat / COORDINATE_SCALE, lon / COORDINATE_SCALE, ele / ELEVATION_SCALE, time);
+            }
+            return new Contents(track, header.toStats(track.points));
+        } catch (RuntimeException e) {
+            // Truncated or corrupt; the GPX is still there to fall back on
+            return null;
+        }
+    }
+
+    public static void delete(File gpxFile) {
+        sidecarFor(gpxFile).delete();
+    }
+
+    private static Header readValidHeader(ByteBuffer in, File gpxFile) {
+        try {
+            if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+            Header header = new Header(in);
+            if (header.sourceLength != gpxFile.length() || header.sourceModified != gpxFile.lastModified()) {
+                return null;
+            }
+            // A count the file can't hold means corruption; checked before read() sizes a buffer by it
+            if (header.pointCount < 0 || header.pointCount > in.remaining() / MIN_POINT_BYTES) return null;
+            return header;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
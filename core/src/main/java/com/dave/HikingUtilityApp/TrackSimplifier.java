@@ -0,0 +1,150 @@
+package com.dave.HikingUtilityApp;
+
+import java.util.Arrays;
+
+/**
+ * Zoom-dependent line simplification for drawing tracks.
+ *
+ * Douglas-Peucker is run once over the whole track, recording for every point
+ * the largest tolerance at which it would still be kept. Any resolution can
+ * then be read off that array with a single filter pass, and the result for
+ * each map zoom level is cached.
+ */
+public class TrackSimplifier {
+
+    public static final int MAX_ZOOM = 22;
+
+    // Keep any point that moves the line by more than this on screen
+    static final double TOLERANCE_PIXELS = 0.5;
+
+    private static final double EARTH_RADIUS = 6371000;
+    private static final double EARTH_CIRCUMFERENCE = 40075016.686;
+    private static final double TILE_SIZE = 512; // MapLibre's zoom 0 world width in pixels
+
+    private final float[] importance;
+    private final double referenceLatitude;
+    private final int[][] levels = new int[MAX_ZOOM + 1][];
+
+    public TrackSimplifier(TrackView points) {
+        int size = points.size();
+        this.importance = new float[size];
+        this.referenceLatitude = size > 0 ? points.getLatitude(size / 2) : 0;
+        computeImportance(points, 0, size - 1, importance);
+    }
+
+    /**
+     * Indices of the points worth drawing at the given camera zoom.
+     */
+    public int[] getLevel(double zoom) {
+        int level = (int) Math.ceil(Math.max(0, Math.min(MAX_ZOOM, zoom)));
+        if (levels[level] == null) {
+            levels[level] = select(importance, TOLERANCE_PIXELS * metersPerPixel(level, referenceLatitude));
+        }
+        return levels[level];
+    }
+
+    public int[] simplify(double toleranceMeters) {
+        return select(importance, toleranceMeters);
+    }
+
+    /**
+     * One-off simplification of points[start..end] (inclusive), returned as absolute indices.
+     */
+    public static int[] simplify(TrackView points, int start, int end, double toleranceMeters) {
+        float[] rangeImportance = new float[end - start + 1];
+        computeImportance(points, start, end, rangeImportance);
+        int[] indices = select(rangeImportance, toleranceMeters);
+        for (int i = 0; i < indices.length; i++) indices[i] += start;
+        return indices;
+    }
+
+    public static double metersPerPixel(double zoom, double latitude) {
+        return EARTH_CIRCUMFERENCE * Math.cos(Math.toRadians(latitude)) / (TILE_SIZE * Math.pow(2, zoom));
+    }
+
+    private static int[] select(float[] importance, double tolerance) {
+        int count = 0;
+        for (float value : importance) {
+            if (value >= tolerance) count++;
+        }
+        int[] indices = new int[count];
+        int n = 0;
+        for (int i = 0; i < importance.length; i++) {
+            if (importance[i] >= tolerance) indices[n++] = i;
+        }
+        return indices;
+    }
+
+    // Iterative Douglas-Peucker over points[start..end]. out[i - start] receives the
+    // tolerance up to which point i survives; a point never outranks the split that
+    // contains it, so every threshold gives a valid DP result.
+    private static void computeImportance(TrackView points, int start, int end, float[] out) {
+        if (end < start) return;
+        out[0] = Float.POSITIVE_INFINITY;
+        out[end - start] = Float.POSITIVE_INFINITY;
+        if (end - start < 2) return;
+
+        // Local equirectangular projection in meters; plenty for on-screen error
+        double cosLat = Math.cos(Math.toRadians(points.getLatitude((start + end) >>> 1)));
+        double scale = Math.toRadians(1) * EARTH_RADIUS;
+
+        int[] stack = new int[64];
+        float[] caps = new float[32];
+        int top = 0;
+        stack[top * 2] = start;
+        stack[top * 2 + 1] = end;
+        caps[top] = Float.POSITIVE_INFINITY;
+        top++;
+
+        while (top > 0) {
+            top--;
+            int a = stack[top * 2];
+            int b = stack[top * 2 + 1];
+            float cap = caps[top];
+
+            double ax = points.getLongitude(a) * cosLat * scale;
+            double ay = points.getLatitude(a) * scale;
+            double dx = points.getLongitude(b) * cosLat * scale - ax;
+            double dy = points.getLatitude(b) * scale - ay;
+            double lengthSquared = dx * dx + dy * dy;
+
+            double maxDistance = -1;
+            int split = -1;
+            for (int i = a + 1; i < b; i++) {
+                double px = points.getLongitude(i) * cosLat * scale - ax;
+                double py = points.getLatitude(i) * scale - ay;
+                double distance;
+                if (lengthSquared == 0) {
+                    distance = Math.sqrt(px * px + py * py);
+                } else {
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+                    double ex = px - t * dx;
+                    double ey = py - t * dy;
+                    distance = Math.sqrt(ex * ex + ey * ey);
+                }
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    split = i;
+                }
+            }
+
+            float value = (float) Math.min(maxDistance, cap);
+            out[split - start] = value;
+
+            if (top + 2 > caps.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                caps = Arrays.copyOf(caps, caps.length * 2);
+            }
+            if (split - a >= 2) {
+                stack[top * 2] = a;
+                stack[top * 2 + 1] = split;
+                caps[top++] = value;
+            }
+            if (b - split >= 2) {
+                stack[top * 2] = split;
+                stack[top * 2 + 1] = b;
+                caps[top++] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Running totals for a track that is being recorded.
+ *
+ * Each accepted fix is folded in once by {@link #add}; every getter is O(1),
+ * so the notification and the tracking screen can poll as often as they like
+ * without walking the point list.
+ */
+public class TrackStats {
+
+    public static final double METERS_TO_MILES = 0.000621371;
+
+    // Segments slower than this count as standing still for moving time
+    private static final double MOVING_SPEED_THRESHOLD = 0.3; // m/s
+
+    // "Current" pace looks at the last few points only
+    private static final int RECENT_POINTS = 5;
+
+    private int pointCount;
+    private double lastElevation;
+    private long lastTimestamp;
+    private long firstTimestamp;
+
+    private double totalDistance;
+    private long movingTime;
+    private double elevationGain;
+    private double elevationLoss;
+
+    private double minLatitude;
+    private double minLongitude;
+    private double maxLatitude;
+    private double maxLongitude;
+
+    // Ring buffers for the recent window: timestamps of the last points and
+    // the distances of the segments between them
+    private final long[] recentTimes = new long[RECENT_POINTS];
+    private final double[] recentDistances = new double[RECENT_POINTS];
+    private double recentDistance;
+
+    // Carries cos(latitude) from one fix to the next
+    private final Geodesy.Path path = new Geodesy.Path();
+
+    /**
+     * Immutable copy of the totals, for handing from the thread that adds fixes to any reader.
+     */
+    public static final class Totals {
+        public static final Totals EMPTY = new TrackStats().totals();
+
+        public final int pointCount;
+        public final double totalDistance;
+        public final long movingTime;
+        public final double elevationGain;
+        public final double elevationLoss;
+        public final double currentPaceMinPerMile;
+
+        private Totals(TrackStats stats) {
+            pointCount = stats.pointCount;
+            totalDistance = stats.totalDistance;
+            movingTime = stats.movingTime;
+            elevationGain = stats.elevationGain;
+            elevationLoss = stats.elevationLoss;
+            currentPaceMinPerMile = stats.getCurrentPaceMinPerMile();
+        }
+
+        public double getAveragePaceMinPerMile(long elapsedMs) {
+            return paceMinPerMile(totalDistance, elapsedMs);
+        }
+
+        public double getAverageSpeedMph(long elapsedMs) {
+            return speedMph(totalDistance, elapsedMs);
+        }
+    }
+
+    /** Totals for a complete track, e.g. one just imported. */
+    public static TrackStats of(TrackView points) {
+        TrackStats stats = new TrackStats();
+        for (int i = 0; i < points.size(); i++) {
+            stats.add(points.getLatitude(i), points.getLongitude(i), points.getElevation(i), points.getTimestamp(i));
+        }
+        return stats;
+    }
+
+    /**
+     * Totals already worked out for a complete track, such as a sidecar's, so
+     * its points aren't walked again. Only the last few are replayed, for the
+     * current pace and for anything added afterwards.
+     */
+    static TrackStats of(TrackView points, double totalDistance, long duration, long movingTime,
+                         double elevationGain, double elevationLoss, double minLatitude,
+                         double minLongitude, double maxLatitude, double maxLongitude) {
+        TrackStats stats = new TrackStats();
+        int count = points.size();
+        // Starting from the ring slots a pass over every point would have reached
+        stats.pointCount = Math.max(0, count - RECENT_POINTS);
+        for (int i = stats.pointCount; i < count; i++) {
+            stats.add(points.getLatitude(i), points.getLongitude(i), points.getElevation(i), points.getTimestamp(i));
+        }
+
+        stats.totalDistance = totalDistance;
+        stats.firstTimestamp = stats.lastTimestamp - duration;
+        stats.movingTime = movingTime;
+        stats.elevationGain = elevationGain;
+        stats.elevationLoss = elevationLoss;
+        stats.minLatitude = minLatitude;
+        stats.minLongitude = minLongitude;
+        stats.maxLatitude = maxLatitude;
+        stats.maxLongitude = maxLongitude;
+        return stats;
+    }
+
+    public void add(double latitude, double longitude, double elevation, long timestamp) {
+        int slot = pointCount % RECENT_POINTS;
+        double distance = path.next(latitude, longitude);
+
+        if (pointCount == 0) {
+            firstTimestamp = timestamp;
+            recentDistances[slot] = 0;
+            minLatitude = maxLatitude = latitude;
+            minLongitude = maxLongitude = longitude;
+        } else {
+            totalDistance += distance;
+
+            long elapsed = timestamp - lastTimestamp;
+            if (elapsed > 0 && distance / (elapsed / 1000.0) >= MOVING_SPEED_THRESHOLD) {
+                movingTime += elapsed;
+            }
+
+            double climb = elevation - lastElevation;
+            if (climb > 0) elevationGain += climb;
+            else elevationLoss -= climb;
+
+            // The slot being overwritten held the segment leaving the window
+            if (pointCount >= RECENT_POINTS) recentDistance -= recentDistances[slot];
+            recentDistances[slot] = distance;
+            recentDistance += distance;
+
+            if (latitude < minLatitude) minLatitude = latitude;
+            if (latitude > maxLatitude) maxLatitude = latitude;
+            if (longitude < minLongitude) minLongitude = longitude;
+            if (longitude > maxLongitude) maxLongitude = longitude;
+        }
+
+        recentTimes[slot] = timestamp;
+        lastElevation = elevation;
+        lastTimestamp = timestamp;
+        pointCount++;
+    }
+
+    public void reset() {
+        pointCount = 0;
+        totalDistance = 0;
+        movingTime = 0;
+        elevationGain = 0;
+        elevationLoss = 0;
+        recentDistance = 0;
+        path.reset();
+        minLatitude = minLongitude = maxLatitude = maxLongitude = 0;
+    }
+
+    public Totals totals() {
+        return new Totals(this);
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /** Meters. */
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    /** Milliseconds spent moving faster than a slow shuffle. */
+    public long getMovingTime() {
+        return movingTime;
+    }
+
+    /** Milliseconds between the first and last point. */
+    public long getDuration() {
+        return pointCount < 2 ? 0 : lastTimestamp - firstTimestamp;
+    }
+
+    /** Meters climbed. */
+    public double getElevationGain() {
+        return elevationGain;
+    }
+
+    /** Meters descended. */
+    public double getElevationLoss() {
+        return elevationLoss;
+    }
+
+    /** Bounding box of every point added; all zero while empty. */
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    /** Average pace over the given elapsed time, in minutes per mile. */
+    public double getAveragePaceMinPerMile(long elapsedMs) {
+        return paceMinPerMile(totalDistance, elapsedMs);
+    }
+
+    /** Average speed over the given elapsed time, in miles per hour. */
+    public double getAverageSpeedMph(long elapsedMs) {
+        return speedMph(totalDistance, elapsedMs);
+    }
+
+    /** Pace over the last few points, in minutes per mile. */
+    public double getCurrentPaceMinPerMile() {
+        if (pointCount < 3) return 0;
+
+        int window = Math.min(pointCount, RECENT_POINTS);
+        long oldest = recentTimes[(pointCount - window) % RECENT_POINTS];
+        long timeDiff = lastTimestamp - oldest;
+        if (timeDiff <= 0) return 0;
+
+        // Once the window is full it holds one segment more than the points span
+        double distance = recentDistance;
+        if (pointCount > RECENT_POINTS) {
+            distance -= recentDistances[pointCount % RECENT_POINTS];
+        }
+        return paceMinPerMile(distance, timeDiff);
+    }
+
+    private static double speedMph(double meters, long elapsedMs) {
+        double hours = elapsedMs / 1000.0 / 3600.0;
+        return hours > 0 ? meters * METERS_TO_MILES / hours : 0;
+    }
+
+    private static double paceMinPerMile(double meters, long elapsedMs) {
+        double miles = meters * METERS_TO_MILES;
+        double minutes = elapsedMs / 1000.0 / 60.0;
+        return miles > 0 ? minutes / miles : 0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.dave.HikingUtilityApp;
+
+/**
+ * Read-only, index-based access to a track's points.
+ *
+ * Shared by the tracking service, the map and the stats code so points can be
+ * handed around without copying them into objects or new lists.
+ */
+public interface TrackView {
+
+    int size();
+
+    double getLatitude(int index);
+
+    double getLongitude(int index);
+
+    double getElevation(int index);
+
+    long getTimestamp(int index);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
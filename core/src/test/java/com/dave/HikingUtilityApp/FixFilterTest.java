@@ -0,0 +1,256 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FixFilterTest {
+
+    private static final double ORIGIN_LATITUDE = 46.5;
+    private static final double ORIGIN_LONGITUDE = 7.9;
+    private static final long START = 1_700_000_000_000L;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * Geodesy.EARTH_RADIUS;
+
+    // Only the stage under test is switched on
+    private static final FixFilter.Config GATES_ONLY = new FixFilter.Config(25, 12, Double.POSITIVE_INFINITY, 0, 0);
+    private static final FixFilter.Config SMOOTHING_ONLY = new FixFilter.Config(
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 1.5, 0, 0);
+    private static final FixFilter.Config STATIONARY_ONLY = new FixFilter.Config(
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 5, 20_000);
+
+    @Test
+    public void accuracyGateDropsPoorFixes() {
+        // east m, north m, seconds, accuracy m (0 = unknown)
+        double[][] trace = {
+                {0, 0, 0, 8},
+                {7, 0, 5, 40},
+                {14, 0, 10, 12},
+                {21, 0, 15, 0},
+                {28, 0, 20, 25.1},
+                {35, 0, 25, 25},
+        };
+        Run run = run(GATES_ONLY, trace);
+
+        assertEquals(6, run.filter.getReceivedCount());
+        assertEquals(2, run.filter.getRejectedAccuracyCount());
+        assertStored(run, trace, 0, 2, 3, 5);
+    }
+
+    @Test
+    public void teleportIsRejected() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 5},
+                {14, 0, 10, 5},
+                {14, 600, 15, 5}, // 120 m/s
+                {21, 0, 20, 5},
+                {28, 0, 25, 5},
+        };
+        Run run = run(GATES_ONLY, trace);
+
+        assertEquals(1, run.filter.getRejectedOutlierCount());
+        assertStored(run, trace, 0, 1, 2, 4, 5);
+    }
+
+    @Test
+    public void teleportCheckAllowsForAccuracy() {
+        // 80 m in 5 s is too fast by itself, but within what two 30 m fixes can be off by
+        FixFilter.Config config = new FixFilter.Config(50, 12, Double.POSITIVE_INFINITY, 0, 0);
+        double[][] trace = {
+                {0, 0, 0, 30},
+                {80, 0, 5, 30},
+        };
+        Run run = run(config, trace);
+
+        assertEquals(0, run.filter.getRejectedOutlierCount());
+        assertStored(run, trace, 0, 1);
+    }
+
+    @Test
+    public void duplicateAndOutOfOrderFixesAreRejected() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 5},
+                {7, 0, 5, 5},
+                {3, 0, 3, 5},
+                {14, 0, 10, 5},
+        };
+        Run run = run(GATES_ONLY, trace);
+
+        assertEquals(2, run.filter.getRejectedOutlierCount());
+        assertStored(run, trace, 0, 1, 4);
+    }
+
+    @Test
+    public void smoothingReducesNoise() {
+        // Walking north at 1.4 m/s with the fixes scattered 6 m either side of the path
+        int count = 200;
+        double[][] trace = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double error = (i % 2 == 0 ? 6 : -6) * (1 + (i % 3)) / 2.0;
+            trace[i] = new double[]{error, 1.4 * 5 * i, 5 * i, 8};
+        }
+        Run run = run(SMOOTHING_ONLY, trace);
+
+        assertEquals(count, run.stored.size());
+        double rawSquares = 0, smoothedSquares = 0;
+        // Skips the first fixes while the filter settles
+        for (int i = 10; i < count; i++) {
+            rawSquares += trace[i][0] * trace[i][0];
+            double east = (run.stored.getLongitude(i) - ORIGIN_LONGITUDE) * METERS_PER_DEGREE
+                    * Math.cos(Math.toRadians(ORIGIN_LATITUDE));
+            smoothedSquares += east * east;
+            assertEquals(START + 5000L * i, run.stored.getTimestamp(i));
+        }
+        assertTrue("smoothed " + smoothedSquares + " raw " + rawSquares, smoothedSquares < rawSquares / 2);
+    }
+
+    @Test
+    public void smoothingFollowsTheWalk() {
+        int count = 100;
+        double[][] trace = new double[count][];
+        for (int i = 0; i < count; i++) trace[i] = new double[]{0, 1.4 * 5 * i, 5 * i, 8};
+        Run run = run(SMOOTHING_ONLY, trace);
+
+        // A constant-position filter trails a steady walk, but by a few fixes at most
+        double north = (run.stored.getLatitude(count - 1) - ORIGIN_LATITUDE) * METERS_PER_DEGREE;
+        assertEquals(trace[count - 1][1], north, 3 * 1.4 * 5);
+    }
+
+    @Test
+    public void longStopCollapsesToOnePoint() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 5},
+                {14, 0, 10, 5},
+                // 60 s standing still with a couple of metres of jitter
+                {15, 1, 15, 5},
+                {13, -1, 25, 5},
+                {16, 0, 35, 5},
+                {14, 2, 45, 5},
+                {12, 0, 55, 5},
+                {15, -2, 70, 5},
+                // walking again
+                {30, 0, 75, 5},
+                {37, 0, 80, 5},
+        };
+        Run run = run(STATIONARY_ONLY, trace);
+
+        assertEquals(5, run.filter.getCollapsedCount());
+        assertEquals(6, run.stored.size());
+        assertStoredPoint(run, 0, trace[0]);
+        assertStoredPoint(run, 1, trace[1]);
+        assertStoredPoint(run, 2, trace[2]);
+        // The stop: where it began, when it ended
+        assertEquals(run.stored.getLatitude(2), run.stored.getLatitude(3), 0);
+        assertEquals(run.stored.getLongitude(2), run.stored.getLongitude(3), 0);
+        assertEquals(START + 70_000, run.stored.getTimestamp(3));
+        assertStoredPoint(run, 4, trace[9]);
+        assertStoredPoint(run, 5, trace[10]);
+    }
+
+    @Test
+    public void shortStopIsDropped() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 5},
+                {8, 1, 10, 5},
+                {6, -1, 15, 5},
+                {20, 0, 20, 5},
+        };
+        Run run = run(STATIONARY_ONLY, trace);
+
+        assertEquals(2, run.filter.getCollapsedCount());
+        assertStored(run, trace, 0, 1, 4);
+    }
+
+    @Test
+    public void flushStoresHeldStop() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {1, 1, 15, 5},
+                {-1, 0, 30, 5},
+        };
+        Run run = run(STATIONARY_ONLY, trace);
+        assertEquals(1, run.stored.size());
+
+        run.filter.flush();
+        assertEquals(2, run.stored.size());
+        assertEquals(START + 30_000, run.stored.getTimestamp(1));
+        assertEquals(1, run.filter.getCollapsedCount());
+    }
+
+    @Test
+    public void passThroughStoresEveryFixUnchanged() {
+        double[][] trace = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 500},
+                {7, 0, 5, 5},
+                {3, 0, 3, 5},
+                {3000, 0, 6, 5},
+                {3001, 1, 7, 0},
+        };
+        Run run = run(FixFilter.Config.PASS_THROUGH, trace);
+
+        assertEquals(0, run.filter.getRejectedAccuracyCount());
+        assertEquals(0, run.filter.getRejectedOutlierCount());
+        assertEquals(0, run.filter.getCollapsedCount());
+        assertStored(run, trace, 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void resetStartsFresh() {
+        double[][] before = {
+                {0, 0, 0, 5},
+                {7, 0, 5, 5},
+        };
+        Run run = run(GATES_ONLY, before);
+
+        // After a pause the walk resumes far away and at an earlier clock; neither is an outlier
+        run.filter.reset();
+        offer(run.filter, new double[]{5000, 0, 4, 5});
+        assertEquals(0, run.filter.getRejectedOutlierCount());
+        assertEquals(3, run.stored.size());
+    }
+
+    private static final class Run {
+        final TrackBuffer stored = new TrackBuffer();
+        final FixFilter filter;
+
+        Run(FixFilter.Config config) {
+            filter = new FixFilter(config, stored::append);
+        }
+    }
+
+    private static Run run(FixFilter.Config config, double[][] trace) {
+        Run run = new Run(config);
+        for (double[] fix : trace) offer(run.filter, fix);
+        return run;
+    }
+
+    private static void offer(FixFilter filter, double[] fix) {
+        filter.offer(latitude(fix), longitude(fix), 100 + fix[2], START + (long) (fix[2] * 1000), fix[3]);
+    }
+
+    private static void assertStored(Run run, double[][] trace, int... indices) {
+        assertEquals(indices.length, run.stored.size());
+        assertEquals(indices.length, run.filter.getStoredCount());
+        for (int i = 0; i < indices.length; i++) assertStoredPoint(run, i, trace[indices[i]]);
+    }
+
+    private static void assertStoredPoint(Run run, int index, double[] fix) {
+        assertEquals("latitude " + index, latitude(fix), run.stored.getLatitude(index), 1e-9);
+        assertEquals("longitude " + index, longitude(fix), run.stored.getLongitude(index), 1e-9);
+        assertEquals("elevation " + index, 100 + fix[2], run.stored.getElevation(index), 1e-9);
+        assertEquals("time " + index, START + (long) (fix[2] * 1000), run.stored.getTimestamp(index));
+    }
+
+    private static double latitude(double[] fix) {
+        return ORIGIN_LATITUDE + fix[1] / METERS_PER_DEGREE;
+    }
+
+    private static double longitude(double[] fix) {
+        return ORIGIN_LONGITUDE + fix[0] / (METERS_PER_DEGREE * Math.cos(Math.toRadians(ORIGIN_LATITUDE)));
+    }
+}
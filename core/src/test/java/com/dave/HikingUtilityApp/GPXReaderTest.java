@@ -0,0 +1,77 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class GPXReaderTest {
+
+    @Test
+    public void readsLargeDocument() throws IOException {
+        int points = 50_000;
+        SyntheticGPX in = new SyntheticGPX(points);
+        GPXTrack track;
+        try (GPXReader reader = new GPXReader(in)) {
+            track = reader.readTrack(0);
+        }
+
+        assertTrue("document should be several MB, was " + in.getCharsRead(), in.getCharsRead() > 5_000_000);
+        assertEquals(SyntheticGPX.NAME, track.name);
+        assertEquals(points, track.points.size());
+        for (int i : new int[]{0, 1, points / 2, points - 1}) {
+            assertEquals(SyntheticGPX.latitude(i), track.points.getLatitude(i), 0);
+            assertEquals(SyntheticGPX.longitude(i), track.points.getLongitude(i), 0);
+            assertEquals(SyntheticGPX.elevation(i), track.points.getElevation(i), 0);
+            assertEquals(SyntheticGPX.timestamp(i), track.points.getTimestamp(i));
+        }
+    }
+
+    // The test JVM's heap is capped in core/build.gradle; a reader that kept the
+    // document, or anything per point, would run out of memory long before the end
+    @Test
+    public void streamsDocumentLargerThanTheHeap() throws IOException {
+        long heap = Runtime.getRuntime().maxMemory();
+        assumeTrue("heap too large to stream past quickly", heap <= 512L << 20);
+        int points = (int) (heap / 50);
+
+        SyntheticGPX in = new SyntheticGPX(points);
+        int count = 0;
+        double lastLatitude = 0;
+        long lastTime = 0;
+        try (GPXReader reader = new GPXReader(in)) {
+            while (reader.nextPoint()) {
+                count++;
+                lastLatitude = reader.getLatitude();
+                lastTime = GPXTime.parse(reader.getTime());
+            }
+        }
+
+        // chars are two bytes each in memory
+        assertTrue(in.getCharsRead() * 2 > heap);
+        assertEquals(points, count);
+        assertEquals(SyntheticGPX.latitude(points - 1), lastLatitude, 0);
+        assertEquals(SyntheticGPX.timestamp(points - 1), lastTime);
+    }
+
+    @Test
+    public void pointsWithoutTimeGetTheDefault() throws IOException {
+        String gpx = "<gpx><trk><trkseg>"
+                + "<trkpt lat=\"1.5\" lon=\"2.5\"/>"
+                + "<trkpt lat=\"3\" lon=\"4\"><ele>10</ele><time>not a time</time></trkpt>"
+                + "</trkseg></trk></gpx>";
+        GPXTrack track = new GPXReader(new StringReader(gpx)).readTrack(42);
+
+        assertEquals("Imported Track", track.name);
+        assertEquals(2, track.points.size());
+        assertEquals(1.5, track.points.getLatitude(0), 0);
+        assertEquals(0, track.points.getElevation(0), 0);
+        assertEquals(42, track.points.getTimestamp(0));
+        assertEquals(10, track.points.getElevation(1), 0);
+        assertEquals(42, track.points.getTimestamp(1));
+    }
+}
@@ -0,0 +1,145 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+public class GPXTimeTest {
+
+    private static final long NOON = Instant.parse("2024-06-15T12:00:00Z").toEpochMilli();
+
+    @Test
+    public void parsesUtc() {
+        assertEquals(NOON, GPXTime.parse("2024-06-15T12:00:00Z"));
+        assertEquals(NOON, GPXTime.parse("2024-06-15t12:00:00z"));
+        assertEquals(NOON, GPXTime.parse("2024-06-15 12:00:00Z"));
+        assertEquals(0, GPXTime.parse("1970-01-01T00:00:00Z"));
+    }
+
+    @Test
+    public void readsMissingZoneAsUtc() {
+        assertEquals(NOON, GPXTime.parse("2024-06-15T12:00:00"));
+    }
+
+    @Test
+    public void parsesEveryOffsetForm() {
+        long expected = NOON - 2 * 3600_000L - 30 * 60_000L;
+        assertEquals(expected, GPXTime.parse("2024-06-15T12:00:00+02:30"));
+        assertEquals(expected, GPXTime.parse("2024-06-15T12:00:00+0230"));
+        assertEquals(NOON + 5 * 3600_000L, GPXTime.parse("2024-06-15T12:00:00-05"));
+        assertEquals(NOON + 9 * 3600_000L + 30 * 60_000L, GPXTime.parse("2024-06-15T12:00:00-09:30"));
+        assertEquals(NOON, GPXTime.parse("2024-06-15T12:00:00+00:00"));
+    }
+
+    @Test
+    public void parsesFractionsOfAnyLength() {
+        assertEquals(NOON + 500, GPXTime.parse("2024-06-15T12:00:00.5Z"));
+        assertEquals(NOON + 120, GPXTime.parse("2024-06-15T12:00:00.12Z"));
+        assertEquals(NOON + 123, GPXTime.parse("2024-06-15T12:00:00.123Z"));
+        // Digits past milliseconds are dropped, not rounded
+        assertEquals(NOON + 123, GPXTime.parse("2024-06-15T12:00:00.123999Z"));
+        assertEquals(NOON + 7, GPXTime.parse("2024-06-15T12:00:00,007+00:00"));
+        assertEquals(NOON + 250, GPXTime.parse("2024-06-15T12:00:00.25"));
+    }
+
+    @Test
+    public void agreesWithJavaTime() {
+        String[] samples = {
+                "1999-12-31T23:59:59Z",
+                "2000-02-29T06:30:15.250Z",
+                "2024-03-10T02:15:00-08:00",
+                "2100-03-01T00:00:00+14:00",
+                "1969-07-20T20:17:40Z",
+                "1900-01-01T00:00:00Z",
+        };
+        for (String sample : samples) {
+            assertEquals(sample, OffsetDateTime.parse(sample).toInstant().toEpochMilli(), GPXTime.parse(sample));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        String[] bad = {
+                null,
+                "",
+                "2024-06-15",
+                "2024-06-15T12:00",
+                "2024/06/15T12:00:00Z",
+                "2024-06-15X12:00:00Z",
+                "2024-6-15T12:00:00Z",
+                "2024-06-15T12:00:0aZ",
+                "2024-13-01T00:00:00Z",
+                "2024-00-01T00:00:00Z",
+                "2024-06-00T00:00:00Z",
+                "2024-06-32T00:00:00Z",
+                "2024-06-31T00:00:00Z",
+                "2024-02-30T00:00:00Z",
+                "2023-02-29T00:00:00Z",
+                "1900-02-29T00:00:00Z",
+                "2024-06-15T24:00:00Z",
+                "2024-06-15T12:60:00Z",
+                "2024-06-15T12:00:00.Z",
+                "2024-06-15T12:00:00Q",
+                "2024-06-15T12:00:00+2",
+                "2024-06-15T12:00:00+02:3",
+                "2024-06-15T12:00:00Z ",
+                "2024-06-15T12:00:00ZZ",
+        };
+        for (String s : bad) {
+            assertEquals(s, GPXTime.INVALID, GPXTime.parse(s));
+        }
+    }
+
+    @Test
+    public void acceptsTheLastDayOfEachMonth() {
+        String[] good = {
+                "2024-01-31T00:00:00Z",
+                "2024-02-29T00:00:00Z",
+                "2000-02-29T00:00:00Z",
+                "2023-02-28T00:00:00Z",
+                "2024-04-30T00:00:00Z",
+                "2024-12-31T23:59:59Z",
+        };
+        for (String s : good) {
+            assertEquals(s, Instant.parse(s).toEpochMilli(), GPXTime.parse(s));
+        }
+    }
+
+    @Test
+    public void formatterRoundTrips() {
+        GPXTime.Formatter formatter = new GPXTime.Formatter();
+        long[] samples = {
+                0,
+                NOON,
+                Instant.parse("2000-02-29T23:59:59Z").toEpochMilli(),
+                Instant.parse("2000-03-01T00:00:00Z").toEpochMilli(),
+                Instant.parse("1969-12-31T23:59:59Z").toEpochMilli(),
+                Instant.parse("2099-12-31T18:45:07Z").toEpochMilli(),
+        };
+        for (long millis : samples) {
+            String text = new String(formatter.format(millis), 0, GPXTime.Formatter.LENGTH);
+            assertEquals(Instant.ofEpochMilli(millis).toString(), text);
+            assertEquals(millis, GPXTime.parse(text));
+        }
+    }
+
+    @Test
+    public void formatterTruncatesToTheSecondAcrossDays() {
+        GPXTime.Formatter formatter = new GPXTime.Formatter();
+        // A walk through midnight, a second and a bit at a time, reusing the one buffer
+        long start = Instant.parse("2024-02-28T23:59:50Z").toEpochMilli();
+        for (long millis = start; millis < start + 48 * 3600_000L; millis += 1_337) {
+            String text = new String(formatter.format(millis), 0, GPXTime.Formatter.LENGTH);
+            assertEquals(millis - Math.floorMod(millis, 1000L), GPXTime.parse(text));
+        }
+    }
+
+    @Test
+    public void acceptsCharSequences() {
+        StringBuilder text = new StringBuilder("2024-06-15T12:00:00Z");
+        assertEquals(NOON, GPXTime.parse(text));
+    }
+}
@@ -0,0 +1,85 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.TimeZone;
+
+public class GPXWriterTest {
+
+    // golden.gpx is what the StringBuilder export in GPXManager produced for this
+    // track, run with the default zone set to UTC (it wrote local time as 'Z')
+    private static GPXTrack goldenTrack() {
+        GPXTrack track = new GPXTrack("Morning Loop");
+        track.description = "Golden fixture";
+        track.createdDate = Date.from(Instant.parse("2024-12-31T23:59:30Z"));
+        append(track, 46.5, 8.0, 1200.5, "2024-12-31T23:59:58Z");
+        append(track, 46.500012345678, 8.000098765432, 0, "2024-12-31T23:59:59.750Z");
+        append(track, -33.8688197, 151.2092955, -3.25, "2025-01-01T00:00:00Z");
+        append(track, 0.0, -0.000001, 8848.86, "2025-01-01T00:00:01Z");
+        append(track, 1e-7, 179.99999999999997, 12.0, "2025-03-01T12:00:00Z");
+        return track;
+    }
+
+    private static void append(GPXTrack track, double latitude, double longitude, double elevation, String time) {
+        track.points.append(latitude, longitude, elevation, Instant.parse(time).toEpochMilli());
+    }
+
+    @Test
+    public void matchesGoldenOutput() throws IOException {
+        assertEquals(readGolden(), write(goldenTrack()));
+    }
+
+    @Test
+    public void outputDoesNotDependOnDefaultZone() throws IOException {
+        TimeZone zone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kathmandu"));
+            assertEquals(readGolden(), write(goldenTrack()));
+        } finally {
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    @Test
+    public void roundTripsThroughReader() throws IOException {
+        GPXTrack written = goldenTrack();
+        written.name = "Fish & <Chips>";
+        GPXTrack read = new GPXReader(new StringReader(write(written))).readTrack(0);
+
+        assertEquals(written.name, read.name);
+        assertEquals(written.points.size(), read.points.size());
+        for (int i = 0; i < written.points.size(); i++) {
+            assertEquals(written.points.getLatitude(i), read.points.getLatitude(i), 0);
+            assertEquals(written.points.getLongitude(i), read.points.getLongitude(i), 0);
+            assertEquals(written.points.getElevation(i), read.points.getElevation(i), 0);
+            // GPX times are written to the second
+            assertEquals(written.points.getTimestamp(i) / 1000 * 1000, read.points.getTimestamp(i));
+        }
+    }
+
+    private static String write(GPXTrack track) throws IOException {
+        StringWriter out = new StringWriter();
+        new GPXWriter(out).writeTrack(track);
+        return out.toString();
+    }
+
+    private static String readGolden() throws IOException {
+        try (InputStream in = GPXWriterTest.class.getResourceAsStream("golden.gpx")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) bytes.write(buffer, 0, n);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
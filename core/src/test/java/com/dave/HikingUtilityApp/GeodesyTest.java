@@ -0,0 +1,148 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GeodesyTest {
+
+    private static final double[] LATITUDES = {0, -23.4, 46.5, 60, -75, 84, 89.5};
+
+    // Radians of arc, from a metre or so to well past the fast path
+    private static final double[] SEPARATIONS = {
+            1e-7, 1e-6, 1e-5, 1e-4, 5e-4, 0.9e-3, 0.999e-3, 1.001e-3, 1.1e-3, 5e-3, 0.05, 0.5, 2,
+    };
+
+    // Bearings in degrees; 45 and 300 mix latitude and longitude
+    private static final double[] BEARINGS = {0, 45, 90, 180, 300};
+
+    @Test
+    public void distanceMatchesHaversine() {
+        double worstFast = 0, worstExact = 0;
+        int fast = 0, exact = 0;
+        for (double latitude : LATITUDES) {
+            for (double separation : SEPARATIONS) {
+                for (double bearing : BEARINGS) {
+                    double[] to = destination(latitude, 7.5, bearing, separation);
+                    double expected = Geodesy.haversine(latitude, 7.5, to[0], to[1]);
+                    double error = relativeError(expected, Geodesy.distance(latitude, 7.5, to[0], to[1]));
+                    if (takesFastPath(latitude, 7.5, to[0], to[1])) {
+                        fast++;
+                        worstFast = Math.max(worstFast, error);
+                    } else {
+                        exact++;
+                        worstExact = Math.max(worstExact, error);
+                    }
+                }
+            }
+        }
+        assertTrue("both sides of the cutoff", fast > 50 && exact > 50);
+        assertTrue("fast path relative error " + worstFast, worstFast < 1e-7);
+        assertTrue("exact path relative error " + worstExact, worstExact < 1e-9);
+    }
+
+    @Test
+    public void crossesTheAntimeridian() {
+        // 1e-3 degrees apart across the date line: fast path, about 110 m
+        double expected = Geodesy.haversine(-12, 179.9995, -12, -179.9995);
+        assertEquals(108.77, expected, 0.01);
+        assertEquals(expected, Geodesy.distance(-12, 179.9995, -12, -179.9995), expected * 1e-7);
+        assertEquals(expected, Geodesy.distance(-12, -179.9995, -12, 179.9995), expected * 1e-7);
+
+        // A degree apart: exact path
+        expected = Geodesy.haversine(65, 179.5, 65.2, -179.5);
+        assertTrue(expected < 60_000);
+        assertEquals(expected, Geodesy.distance(65, 179.5, 65.2, -179.5), expected * 1e-9);
+    }
+
+    @Test
+    public void identicalPointsAreZeroApart() {
+        assertEquals(0, Geodesy.distance(46.5, 7.5, 46.5, 7.5), 0);
+        assertEquals(0, Geodesy.distance(90, 0, 90, 0), 0);
+        Geodesy.Path path = new Geodesy.Path();
+        assertEquals(0, path.next(46.5, 7.5), 0);
+        assertEquals(0, path.next(46.5, 7.5), 0);
+    }
+
+    // The incremental kernel also extrapolates cos(latitude); its error has to stay small
+    // next to cos itself all the way up to the Arctic leg of this walk
+    @Test
+    public void pathMatchesHaversineSum() {
+        Random random = new Random(18);
+        int count = 20_000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        // North from the tropics to the Arctic, over the date line on the way
+        double latitude = 10, longitude = 175;
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            latitude = Math.min(89.9, latitude + 0.004 + random.nextGaussian() * 0.002);
+            longitude += random.nextGaussian() * 0.003 + 0.001;
+            if (random.nextInt(500) == 0) longitude += 0.2; // the odd long jump
+            if (longitude > 180) longitude -= 360;
+        }
+
+        Geodesy.Path path = new Geodesy.Path();
+        double expectedTotal = 0;
+        for (int i = 0; i < count; i++) {
+            double segment = path.next(latitudes[i], longitudes[i]);
+            if (i == 0) {
+                assertEquals(0, segment, 0);
+                continue;
+            }
+            double expected = Geodesy.haversine(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+            expectedTotal += expected;
+            double error = relativeError(expected, segment);
+            assertTrue("segment " + i + " at " + latitudes[i] + " relative error " + error, error < 1e-7);
+        }
+
+        double total = Geodesy.pathLength(latitudes, longitudes, 0, count);
+        assertEquals(expectedTotal, total, expectedTotal * 1e-6);
+
+        double expectedPart = 0;
+        for (int i = 101; i < 200; i++) {
+            expectedPart += Geodesy.haversine(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        assertEquals(expectedPart, Geodesy.pathLength(latitudes, longitudes, 100, 200), expectedPart * 1e-6);
+        assertEquals(0, Geodesy.pathLength(latitudes, longitudes, 100, 101), 0);
+    }
+
+    @Test
+    public void resetForgetsThePreviousPoint() {
+        Geodesy.Path path = new Geodesy.Path();
+        path.next(46.5, 7.5);
+        path.next(46.501, 7.5);
+        path.reset();
+        assertEquals(0, path.next(-33.9, 151.2), 0);
+        double expected = Geodesy.haversine(-33.9, 151.2, -33.9005, 151.2003);
+        assertEquals(expected, path.next(-33.9005, 151.2003), expected * 1e-7);
+    }
+
+    private static boolean takesFastPath(double lat1, double lon1, double lat2, double lon2) {
+        double dLambda = Math.toRadians(lon2 - lon1);
+        if (dLambda > Math.PI) dLambda -= 2 * Math.PI;
+        else if (dLambda < -Math.PI) dLambda += 2 * Math.PI;
+        return Math.abs(Math.toRadians(lat2 - lat1)) < Geodesy.FAST_PATH_RADIANS
+                && Math.abs(dLambda) < Geodesy.FAST_PATH_RADIANS;
+    }
+
+    private static double relativeError(double expected, double actual) {
+        return expected == 0 ? Math.abs(actual) : Math.abs(actual - expected) / expected;
+    }
+
+    // The point the given arc away along the initial bearing, on the sphere
+    private static double[] destination(double latitude, double longitude, double bearing, double arc) {
+        double phi = Math.toRadians(latitude);
+        double theta = Math.toRadians(bearing);
+        double phi2 = Math.asin(Math.sin(phi) * Math.cos(arc) + Math.cos(phi) * Math.sin(arc) * Math.cos(theta));
+        double lambda2 = Math.atan2(Math.sin(theta) * Math.sin(arc) * Math.cos(phi),
+                Math.cos(arc) - Math.sin(phi) * Math.sin(phi2));
+        double lon2 = longitude + Math.toDegrees(lambda2);
+        if (lon2 > 180) lon2 -= 360;
+        return new double[]{Math.toDegrees(phi2), lon2};
+    }
+}
@@ -0,0 +1,199 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SamplingGovernorTest {
+
+    private static final double ORIGIN_LATITUDE = 46.5;
+    private static final double ORIGIN_LONGITUDE = 7.9;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * Geodesy.EARTH_RADIUS;
+
+    private SamplingGovernor governor;
+    private long now;
+    private double east, north;
+
+    @Before
+    public void setUp() {
+        governor = new SamplingGovernor();
+        now = 1_000_000;
+        governor.start(now);
+    }
+
+    @Test
+    public void startsAtTheFastestStep() {
+        assertEquals(2000, governor.getIntervalMillis());
+        assertEquals(0, governor.getMinDistanceMeters(), 0);
+        assertFalse(governor.isStationary());
+    }
+
+    @Test
+    public void intervalStepsWithSpeed() {
+        // The slowest step that still lands fixes about 15 m apart
+        assertSettlesAt(0.5, 10_000);
+        assertSettlesAt(1.4, 10_000);
+        assertSettlesAt(2.5, 5000);
+        assertSettlesAt(3.0, 5000);
+        assertSettlesAt(4.0, 2000);
+        assertSettlesAt(8.0, 2000);
+    }
+
+    @Test
+    public void displacementIsAQuarterOfTheExpectedTravel() {
+        walkNorth(1.2, 120_000);
+        assertEquals(10_000, governor.getIntervalMillis());
+        assertEquals(0.25 * 1.2 * 10, governor.getMinDistanceMeters(), 1e-4);
+    }
+
+    @Test
+    public void speedingUpTakesEffectAtOnce() {
+        walkNorth(1.0, 120_000);
+        assertEquals(10_000, governor.getIntervalMillis());
+
+        // The smoothed speed passes 1.5 m/s on the first fast fix
+        assertTrue(fixNorth(5.0, 10_000));
+        assertEquals(5000, governor.getIntervalMillis());
+    }
+
+    // A burst of speed and back shouldn't flip the request twice in quick succession
+    @Test
+    public void slowingDownWaitsForTheHold() {
+        walkNorth(1.0, 120_000);
+        assertTrue(fixNorth(5.0, 10_000));
+        long changedAt = now;
+        assertEquals(5000, governor.getIntervalMillis());
+
+        boolean changed = false;
+        while (!changed) {
+            changed = fixNorth(0.8, 2000);
+            if (changed) assertTrue("changed " + (now - changedAt) + " ms after the last change", now - changedAt >= 15_000);
+        }
+        assertEquals(10_000, governor.getIntervalMillis());
+    }
+
+    @Test
+    public void measuresSpeedWhenTheReceiverDoesNot() {
+        for (int i = 0; i < 40; i++) fix(-1, 10_000, 1.0, 0);
+        assertEquals(10_000, governor.getIntervalMillis());
+        for (int i = 0; i < 5; i++) fix(-1, 2000, 4.0, 0);
+        assertEquals(2000, governor.getIntervalMillis());
+    }
+
+    @Test
+    public void turnAsksForTheFastestRate() {
+        walkNorth(1.0, 120_000);
+        assertEquals(10_000, governor.getIntervalMillis());
+
+        // A right angle: the first 25 m stretch heading east reads as a turn
+        boolean changed = false;
+        for (int i = 0; i < 4 && !changed; i++) changed = fix(1.0, 10_000, 1.0, 0);
+        assertTrue(changed);
+        assertEquals(2000, governor.getIntervalMillis());
+        assertEquals(0, governor.getMinDistanceMeters(), 0);
+
+        // Once the heading has held for a stretch the rate drops again, after the hold
+        for (int i = 0; i < 40; i++) fix(1.0, governor.getIntervalMillis(), 1.0, 0);
+        assertEquals(10_000, governor.getIntervalMillis());
+    }
+
+    @Test
+    public void gentleBendIsNotATurn() {
+        walkNorth(1.0, 120_000);
+        for (int i = 0; i < 20; i++) {
+            // 20 degrees off north
+            assertFalse(fix(1.0, 10_000, Math.sin(Math.toRadians(20)), Math.cos(Math.toRadians(20))));
+        }
+        assertEquals(10_000, governor.getIntervalMillis());
+    }
+
+    @Test
+    public void backsOffWhenStationary() {
+        walkNorth(1.0, 60_000);
+
+        // Standing still with a few metres of jitter
+        long stoppedAt = now;
+        boolean changed = false;
+        for (int i = 0; !changed; i++) {
+            long interval = governor.getIntervalMillis();
+            now += interval;
+            changed = governor.onFix(latitude(north + (i % 3) - 1), longitude(east + (i % 2) * 2), 0, now);
+        }
+        assertTrue(governor.isStationary());
+        assertTrue(now - stoppedAt >= SamplingGovernor.STATIONARY_AFTER_MS);
+        assertTrue(now - stoppedAt <= SamplingGovernor.STATIONARY_AFTER_MS + 10_000);
+        assertEquals(SamplingGovernor.STATIONARY_INTERVAL_MS, governor.getIntervalMillis());
+        assertEquals(0, governor.getMinDistanceMeters(), 0);
+
+        // Still there: nothing changes
+        now += SamplingGovernor.STATIONARY_INTERVAL_MS;
+        assertFalse(governor.onFix(latitude(north), longitude(east), 0, now));
+
+        // The first fix off the spot switches back straight away
+        north += 40;
+        now += SamplingGovernor.STATIONARY_INTERVAL_MS;
+        assertTrue(governor.onFix(latitude(north), longitude(east), 1.3, now));
+        assertFalse(governor.isStationary());
+        assertTrue(governor.getIntervalMillis() < SamplingGovernor.STATIONARY_INTERVAL_MS);
+    }
+
+    @Test
+    public void startForgetsMovement() {
+        walkNorth(1.0, 120_000);
+        governor.stop(now);
+        now += 3_600_000;
+        governor.start(now);
+        assertEquals(2000, governor.getIntervalMillis());
+        assertFalse(governor.isStationary());
+    }
+
+    @Test
+    public void accountsPowerForTheRequestInForce() {
+        assertEquals(60 + 7.5, SamplingGovernor.estimatePowerMw(2000), 1e-9);
+        assertEquals(60 * 5000.0 / 30_000 + 0.5, SamplingGovernor.estimatePowerMw(30_000), 1e-9);
+
+        // Two minutes at 2 s, then stopped: time after stop isn't charged
+        now += 120_000;
+        governor.onFix(latitude(0), longitude(0), 0, now);
+        governor.stop(now);
+        assertEquals(1, governor.getFixCount());
+        assertEquals(SamplingGovernor.estimatePowerMw(2000), governor.getEstimatedPowerMw(), 1e-9);
+        assertEquals(SamplingGovernor.estimatePowerMw(2000) * 120 / 3600, governor.getEstimatedEnergyMwh(), 1e-9);
+        assertEquals(500, governor.getFixesPerKm(2), 0);
+    }
+
+    private void assertSettlesAt(double speed, long expectedInterval) {
+        setUp();
+        walkNorth(speed, 180_000);
+        assertEquals("at " + speed + " m/s", expectedInterval, governor.getIntervalMillis());
+    }
+
+    // Fixes at the governor's own rate, heading north at a steady speed
+    private void walkNorth(double speed, long duration) {
+        long end = now + duration;
+        while (now < end) fixNorth(speed, governor.getIntervalMillis());
+    }
+
+    private boolean fixNorth(double speed, long interval) {
+        return fix(speed, interval, 0, speed);
+    }
+
+    // Moves by (eastSpeed, northSpeed) m/s for the interval and reports speed, negative if unknown
+    private boolean fix(double reportedSpeed, long interval, double eastSpeed, double northSpeed) {
+        now += interval;
+        east += eastSpeed * interval / 1000;
+        north += northSpeed * interval / 1000;
+        return governor.onFix(latitude(north), longitude(east), reportedSpeed, now);
+    }
+
+    private static double latitude(double north) {
+        return ORIGIN_LATITUDE + north / METERS_PER_DEGREE;
+    }
+
+    private static double longitude(double east) {
+        return ORIGIN_LONGITUDE + east / (METERS_PER_DEGREE * Math.cos(Math.toRadians(ORIGIN_LATITUDE)));
+    }
+}
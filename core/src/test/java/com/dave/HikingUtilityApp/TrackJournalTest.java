@@ -0,0 +1,161 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrackJournalTest {
+
+    private static final int RECORD_SIZE = 36;
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysWhatWasAppended() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        TrackJournal journal = TrackJournal.create(file, "Ridge walk", START);
+        for (int i = 0; i < 1000; i++) append(journal, i);
+        assertEquals(1000, journal.size());
+        journal.close();
+
+        journal = TrackJournal.open(file);
+        assertEquals(1000, journal.size());
+        assertReplays(journal, 1000);
+        journal.close();
+    }
+
+    @Test
+    public void nameAndStartTimeSurviveReopen() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        String name = "Gipfel über Zermatt";
+        TrackJournal journal = TrackJournal.create(file, name, START);
+        append(journal, 0);
+        journal.close();
+
+        journal = TrackJournal.open(file);
+        assertEquals(name, journal.getTrackName());
+        assertEquals(START, journal.getStartTime());
+        journal.close();
+    }
+
+    @Test
+    public void emptyJournalReopens() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        TrackJournal.create(file, "Nothing yet", START).close();
+
+        TrackJournal journal = TrackJournal.open(file);
+        assertEquals(0, journal.size());
+        assertReplays(journal, 0);
+        journal.close();
+    }
+
+    // What a process killed in the middle of a write leaves behind
+    @Test
+    public void tornRecordIsTruncatedOnOpen() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        TrackJournal journal = TrackJournal.create(file, "Torn", START);
+        for (int i = 0; i < 20; i++) append(journal, i);
+        journal.close();
+        long headerLength = file.length() - 20L * RECORD_SIZE;
+        setLength(file, file.length() - RECORD_SIZE / 2);
+
+        journal = TrackJournal.open(file);
+        assertEquals(19, journal.size());
+        assertEquals(headerLength + 19L * RECORD_SIZE, file.length());
+        assertReplays(journal, 19);
+
+        // Recording carries on where the good records end
+        append(journal, 19);
+        journal.close();
+        journal = TrackJournal.open(file);
+        assertEquals(20, journal.size());
+        assertReplays(journal, 20);
+        journal.close();
+    }
+
+    @Test
+    public void badChecksumEndsTheReplay() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        TrackJournal journal = TrackJournal.create(file, "Corrupt", START);
+        for (int i = 0; i < 600; i++) append(journal, i);
+        journal.close();
+        long headerLength = file.length() - 600L * RECORD_SIZE;
+
+        // One flipped bit in the 400th record's latitude
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = headerLength + 400L * RECORD_SIZE + 3;
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x10);
+        }
+
+        journal = TrackJournal.open(file);
+        assertEquals(400, journal.size());
+        assertEquals(headerLength + 400L * RECORD_SIZE, file.length());
+        assertReplays(journal, 400);
+        journal.close();
+    }
+
+    @Test
+    public void deleteRemovesTheFile() throws IOException {
+        File file = new File(folder.getRoot(), "active.journal");
+        TrackJournal journal = TrackJournal.create(file, "Saved", START);
+        append(journal, 0);
+        journal.delete();
+
+        assertFalse(file.exists());
+    }
+
+    private static void append(TrackJournal journal, int i) throws IOException {
+        journal.append(latitude(i), longitude(i), elevation(i), timestamp(i));
+    }
+
+    private static void assertReplays(TrackJournal journal, int count) throws IOException {
+        List<double[]> records = new ArrayList<>();
+        journal.replay((latitude, longitude, elevation, timestamp) ->
+                records.add(new double[]{latitude, longitude, elevation, timestamp}));
+
+        assertEquals(count, records.size());
+        for (int i = 0; i < count; i++) {
+            double[] record = records.get(i);
+            assertEquals("latitude " + i, latitude(i), record[0], 0);
+            assertEquals("longitude " + i, longitude(i), record[1], 0);
+            assertEquals("elevation " + i, elevation(i), record[2], 0);
+            assertEquals("time " + i, timestamp(i), (long) record[3]);
+        }
+    }
+
+    private static void setLength(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private static double latitude(int i) {
+        return 46.5 + i * 1.25e-5;
+    }
+
+    private static double longitude(int i) {
+        return -121.75 - i * 2.5e-5;
+    }
+
+    private static double elevation(int i) {
+        return 1500 + Math.sin(i / 10.0) * 30;
+    }
+
+    private static long timestamp(int i) {
+        return START + i * 2000L + i % 7;
+    }
+}
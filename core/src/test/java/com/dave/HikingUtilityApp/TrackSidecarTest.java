@@ -0,0 +1,169 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class TrackSidecarTest {
+
+    // After magic, version, gpx length, gpx lastModified and created time; the name follows the stats
+    private static final int POINT_COUNT_OFFSET = 32;
+    private static final int NAME_LENGTH_OFFSET = 108;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File gpxFile;
+    private GPXTrack track;
+    private TrackStats stats;
+
+    @Before
+    public void setUp() throws IOException {
+        gpxFile = folder.newFile("walk.gpx");
+        Files.write(gpxFile.toPath(), "<gpx/>".getBytes(StandardCharsets.UTF_8));
+
+        track = new GPXTrack("Walk");
+        for (int i = 0; i < 100; i++) {
+            track.points.append(46.5 + i * 1e-4, 8.0 - i * 1e-4, 1200 + i * 0.25, 1_700_000_000_000L + i * 1000L);
+        }
+        stats = TrackStats.of(track.points);
+        TrackSidecar.write(gpxFile, track, stats);
+    }
+
+    @Test
+    public void roundTrips() throws IOException {
+        GPXTrack read = TrackSidecar.read(gpxFile);
+
+        assertNotNull(read);
+        assertEquals("Walk", read.name);
+        assertEquals(100, read.points.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(track.points.getLatitude(i), read.points.getLatitude(i), 1e-7);
+            assertEquals(track.points.getLongitude(i), read.points.getLongitude(i), 1e-7);
+            assertEquals(track.points.getElevation(i), read.points.getElevation(i), 0.01);
+            assertEquals(track.points.getTimestamp(i), read.points.getTimestamp(i));
+        }
+        assertEquals(100, TrackSidecar.readHeader(gpxFile).pointCount);
+    }
+
+    @Test
+    public void statsComeFromTheHeader() throws IOException {
+        TrackSidecar.Contents contents = TrackSidecar.readContents(gpxFile);
+
+        assertNotNull(contents);
+        TrackStats read = contents.stats;
+        assertEquals(stats.getPointCount(), read.getPointCount());
+        assertEquals(stats.getTotalDistance(), read.getTotalDistance(), 0);
+        assertEquals(stats.getDuration(), read.getDuration());
+        assertEquals(stats.getMovingTime(), read.getMovingTime());
+        assertEquals(stats.getElevationGain(), read.getElevationGain(), 0);
+        assertEquals(stats.getElevationLoss(), read.getElevationLoss(), 0);
+        assertEquals(stats.getMinLatitude(), read.getMinLatitude(), 0);
+        assertEquals(stats.getMaxLongitude(), read.getMaxLongitude(), 0);
+        // Replayed from the last points, which the sidecar rounds to about a centimetre
+        double pace = stats.getCurrentPaceMinPerMile();
+        assertEquals(pace, read.getCurrentPaceMinPerMile(), pace * 1e-4);
+
+        // Carries on like stats built from every point
+        stats.add(46.52, 7.98, 1230, 1_700_000_100_000L);
+        read.add(46.52, 7.98, 1230, 1_700_000_100_000L);
+        assertEquals(stats.getTotalDistance(), read.getTotalDistance(), 0.01);
+        assertEquals(stats.getDuration(), read.getDuration());
+        assertEquals(stats.getCurrentPaceMinPerMile(), read.getCurrentPaceMinPerMile(), pace * 1e-4);
+    }
+
+    @Test
+    public void shortTrackStats() throws IOException {
+        GPXTrack shortTrack = new GPXTrack("Short");
+        for (int i = 0; i < 3; i++) {
+            shortTrack.points.append(46.5 + i * 1e-4, 8.0, 1200, 1_700_000_000_000L + i * 1000L);
+        }
+        TrackStats expected = TrackStats.of(shortTrack.points);
+        TrackSidecar.write(gpxFile, shortTrack, expected);
+
+        TrackStats read = TrackSidecar.readContents(gpxFile).stats;
+        assertEquals(3, read.getPointCount());
+        assertEquals(expected.getDuration(), read.getDuration());
+        assertEquals(expected.getCurrentPaceMinPerMile(), read.getCurrentPaceMinPerMile(),
+                expected.getCurrentPaceMinPerMile() * 1e-4);
+    }
+
+    @Test
+    public void streamedWriterMatchesWrite() throws IOException {
+        byte[] written = Files.readAllBytes(TrackSidecar.sidecarFor(gpxFile).toPath());
+
+        try (TrackSidecar.Writer writer = new TrackSidecar.Writer(gpxFile, track.name, track.description,
+                track.createdDate.getTime())) {
+            for (int i = 0; i < track.points.size(); i++) {
+                writer.writePoint(track.points.getLatitude(i), track.points.getLongitude(i),
+                        track.points.getElevation(i), track.points.getTimestamp(i));
+            }
+            writer.finish(stats);
+        }
+        assertArrayEquals(written, Files.readAllBytes(TrackSidecar.sidecarFor(gpxFile).toPath()));
+    }
+
+    @Test
+    public void unfinishedWriterLeavesNothing() throws IOException {
+        File other = folder.newFile("other.gpx");
+        try (TrackSidecar.Writer writer = new TrackSidecar.Writer(other, "Other", null, 0)) {
+            writer.writePoint(46.5, 8.0, 1200, 1_700_000_000_000L);
+        }
+        assertFalse(TrackSidecar.sidecarFor(other).exists());
+        // walk.gpx, its sidecar and other.gpx; no temporary file
+        assertEquals(3, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void staleWhenGpxChanges() throws IOException {
+        Files.write(gpxFile.toPath(), "<gpx></gpx>".getBytes(StandardCharsets.UTF_8));
+        assertNull(TrackSidecar.read(gpxFile));
+        assertNull(TrackSidecar.readHeader(gpxFile));
+    }
+
+    // Would otherwise size a TrackBuffer by the bad count and run out of memory
+    @Test
+    public void corruptPointCountIsStale() throws IOException {
+        patchInt(POINT_COUNT_OFFSET, Integer.MAX_VALUE);
+        assertNull(TrackSidecar.read(gpxFile));
+        assertNull(TrackSidecar.readHeader(gpxFile));
+
+        patchInt(POINT_COUNT_OFFSET, -5);
+        assertNull(TrackSidecar.read(gpxFile));
+    }
+
+    @Test
+    public void corruptNameLengthIsStale() throws IOException {
+        patchInt(NAME_LENGTH_OFFSET, Integer.MAX_VALUE);
+        assertNull(TrackSidecar.read(gpxFile));
+    }
+
+    @Test
+    public void truncatedIsStale() throws IOException {
+        File sidecar = TrackSidecar.sidecarFor(gpxFile);
+        try (RandomAccessFile raf = new RandomAccessFile(sidecar, "rw")) {
+            raf.setLength(raf.length() - 50);
+        }
+        assertNull(TrackSidecar.read(gpxFile));
+    }
+
+    private void patchInt(int offset, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(TrackSidecar.sidecarFor(gpxFile), "rw")) {
+            raf.seek(offset);
+            raf.writeInt(value);
+        }
+    }
+}
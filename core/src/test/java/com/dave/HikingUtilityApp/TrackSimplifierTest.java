@@ -0,0 +1,164 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TrackSimplifierTest {
+
+    private static final double EARTH_RADIUS = 6371000;
+
+    @Test
+    public void everyLevelKeepsTheEndpoints() {
+        TrackBuffer track = walk(5000, 1);
+        TrackSimplifier simplifier = new TrackSimplifier(track);
+        for (int zoom = 0; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            int[] level = simplifier.getLevel(zoom);
+            assertTrue("zoom " + zoom, level.length >= 2);
+            assertEquals("zoom " + zoom, 0, level[0]);
+            assertEquals("zoom " + zoom, track.size() - 1, level[level.length - 1]);
+        }
+    }
+
+    @Test
+    public void droppedPointsAreWithinTheLevelTolerance() {
+        TrackBuffer track = walk(5000, 2);
+        TrackSimplifier simplifier = new TrackSimplifier(track);
+        double referenceLatitude = track.getLatitude(track.size() / 2);
+        int finest = 0;
+        for (int zoom = 0; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            int[] level = simplifier.getLevel(zoom);
+            double tolerance = TrackSimplifier.TOLERANCE_PIXELS * TrackSimplifier.metersPerPixel(zoom, referenceLatitude);
+            assertWithinTolerance("zoom " + zoom, track, level, tolerance);
+            finest = Math.max(finest, level.length);
+        }
+        // Zoomed right in, the walk's few-metre wiggles all matter
+        assertTrue(finest > track.size() / 2);
+    }
+
+    @Test
+    public void levelsNestAsZoomIncreases() {
+        TrackBuffer track = walk(5000, 3);
+        TrackSimplifier simplifier = new TrackSimplifier(track);
+        int[] coarser = simplifier.getLevel(0);
+        for (int zoom = 1; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            int[] finer = simplifier.getLevel(zoom);
+            assertTrue("zoom " + zoom, finer.length >= coarser.length);
+            for (int index : coarser) {
+                assertTrue("zoom " + zoom + " lost " + index, Arrays.binarySearch(finer, index) >= 0);
+            }
+            coarser = finer;
+        }
+    }
+
+    @Test
+    public void fractionalZoomRoundsUp() {
+        TrackSimplifier simplifier = new TrackSimplifier(walk(2000, 4));
+        assertArrayEquals(simplifier.getLevel(13), simplifier.getLevel(12.2));
+        assertArrayEquals(simplifier.getLevel(0), simplifier.getLevel(-3));
+        assertArrayEquals(simplifier.getLevel(TrackSimplifier.MAX_ZOOM), simplifier.getLevel(40));
+    }
+
+    @Test
+    public void rangeSimplificationStaysInRange() {
+        TrackBuffer track = walk(3000, 5);
+        int start = 700, end = 2100;
+        double tolerance = 25;
+        int[] indices = TrackSimplifier.simplify(track, start, end, tolerance);
+
+        assertEquals(start, indices[0]);
+        assertEquals(end, indices[indices.length - 1]);
+        assertWithinTolerance("range", track, indices, tolerance);
+    }
+
+    // A loop ending where it began, with repeated points, gives zero-length chords
+    @Test
+    public void closedLoopWithRepeatedPoints() {
+        TrackBuffer track = new TrackBuffer();
+        for (int i = 0; i <= 400; i++) {
+            double angle = 2 * Math.PI * i / 400;
+            double latitude = 46.5 + 0.002 * Math.sin(angle);
+            double longitude = 8.0 + 0.003 * (1 - Math.cos(angle));
+            track.append(latitude, longitude, 0, i);
+            if (i % 50 == 0) track.append(latitude, longitude, 0, i);
+        }
+        TrackSimplifier simplifier = new TrackSimplifier(track);
+        for (int zoom = 0; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            double tolerance = TrackSimplifier.TOLERANCE_PIXELS * TrackSimplifier.metersPerPixel(zoom, 46.5);
+            int[] level = simplifier.getLevel(zoom);
+            assertEquals(0, level[0]);
+            assertEquals(track.size() - 1, level[level.length - 1]);
+            assertWithinTolerance("zoom " + zoom, track, level, tolerance);
+        }
+    }
+
+    @Test
+    public void shortTracks() {
+        TrackBuffer track = new TrackBuffer();
+        TrackSimplifier empty = new TrackSimplifier(track);
+        assertEquals(0, empty.getLevel(10).length);
+        assertEquals(0, empty.simplify(1).length);
+
+        track.append(46.5, 8.0, 0, 0);
+        TrackSimplifier one = new TrackSimplifier(track);
+        for (int zoom = 0; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            assertArrayEquals(new int[]{0}, one.getLevel(zoom));
+        }
+
+        track.append(46.5, 8.0, 0, 1);
+        TrackSimplifier two = new TrackSimplifier(track);
+        for (int zoom = 0; zoom <= TrackSimplifier.MAX_ZOOM; zoom++) {
+            assertArrayEquals(new int[]{0, 1}, two.getLevel(zoom));
+        }
+        assertArrayEquals(new int[]{0, 1}, two.simplify(1e9));
+        assertArrayEquals(new int[]{1}, TrackSimplifier.simplify(track, 1, 1, 10));
+    }
+
+    // Every point left out must lie within tolerance of the kept segment that spans it,
+    // measured in the same local flat projection the simplifier uses
+    private static void assertWithinTolerance(String message, TrackView points, int[] kept, double tolerance) {
+        int first = kept[0];
+        int last = kept[kept.length - 1];
+        double cosLat = Math.cos(Math.toRadians(points.getLatitude((first + last) >>> 1)));
+        double scale = Math.toRadians(1) * EARTH_RADIUS;
+        double slack = tolerance * 1e-6;
+
+        for (int k = 1; k < kept.length; k++) {
+            int a = kept[k - 1];
+            int b = kept[k];
+            assertTrue(message, b > a);
+            double ax = points.getLongitude(a) * cosLat * scale;
+            double ay = points.getLatitude(a) * scale;
+            double dx = points.getLongitude(b) * cosLat * scale - ax;
+            double dy = points.getLatitude(b) * scale - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            for (int i = a + 1; i < b; i++) {
+                double px = points.getLongitude(i) * cosLat * scale - ax;
+                double py = points.getLatitude(i) * scale - ay;
+                double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+                double distance = Math.hypot(px - t * dx, py - t * dy);
+                assertTrue(message + ": point " + i + " is " + distance + " m off, tolerance " + tolerance,
+                        distance <= tolerance + slack);
+            }
+        }
+    }
+
+    // A wandering walk: a few metres of jitter on top of slow turns
+    private static TrackBuffer walk(int points, long seed) {
+        Random random = new Random(seed);
+        TrackBuffer track = new TrackBuffer(points);
+        double latitude = 46.5, longitude = 8.0, heading = 0;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.1;
+            latitude += Math.cos(heading) * 5e-5 + random.nextGaussian() * 2e-5;
+            longitude += Math.sin(heading) * 7e-5 + random.nextGaussian() * 3e-5;
+            track.append(latitude, longitude, 1000, 1_700_000_000_000L + i * 1000L);
+        }
+        return track;
+    }
+}
@@ -0,0 +1,152 @@
+package com.dave.HikingUtilityApp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TrackStatsTest {
+
+    private static final int[] SIZES = {0, 1, 2, 3, 5, 6, 7, 10, 1000};
+
+    @Test
+    public void ofMatchesBatch() {
+        for (int size : SIZES) {
+            TrackBuffer track = walk(size, size);
+            assertMatches("size " + size, new Batch(track, track.size()), TrackStats.of(track));
+        }
+    }
+
+    // Checked after every add, so the recent-pace window is seen filling up and wrapping
+    @Test
+    public void addMatchesBatchAtEveryPoint() {
+        TrackBuffer track = walk(60, 1);
+        TrackStats stats = new TrackStats();
+        assertMatches("empty", new Batch(track, 0), stats);
+        for (int i = 0; i < track.size(); i++) {
+            stats.add(track.getLatitude(i), track.getLongitude(i), track.getElevation(i), track.getTimestamp(i));
+            assertMatches("after " + (i + 1), new Batch(track, i + 1), stats);
+        }
+    }
+
+    @Test
+    public void resetStartsOver() {
+        TrackBuffer first = walk(20, 2);
+        TrackBuffer second = walk(7, 3);
+        TrackStats stats = TrackStats.of(first);
+        stats.reset();
+        for (int i = 0; i < second.size(); i++) {
+            stats.add(second.getLatitude(i), second.getLongitude(i), second.getElevation(i), second.getTimestamp(i));
+        }
+        assertMatches("after reset", new Batch(second, second.size()), stats);
+    }
+
+    @Test
+    public void totalsCopyTheStats() {
+        TrackBuffer track = walk(12, 4);
+        TrackStats stats = TrackStats.of(track);
+        TrackStats.Totals totals = stats.totals();
+
+        assertEquals(stats.getPointCount(), totals.pointCount);
+        assertEquals(stats.getTotalDistance(), totals.totalDistance, 0);
+        assertEquals(stats.getMovingTime(), totals.movingTime);
+        assertEquals(stats.getElevationGain(), totals.elevationGain, 0);
+        assertEquals(stats.getElevationLoss(), totals.elevationLoss, 0);
+        assertEquals(stats.getCurrentPaceMinPerMile(), totals.currentPaceMinPerMile, 0);
+        assertEquals(stats.getAveragePaceMinPerMile(3_600_000), totals.getAveragePaceMinPerMile(3_600_000), 0);
+    }
+
+    private static void assertMatches(String message, Batch expected, TrackStats actual) {
+        assertEquals(message, expected.count, actual.getPointCount());
+        assertClose(message + " distance", expected.distance, actual.getTotalDistance());
+        assertEquals(message + " moving time", expected.movingTime, actual.getMovingTime());
+        assertEquals(message + " duration", expected.duration, actual.getDuration());
+        assertEquals(message + " gain", expected.gain, actual.getElevationGain(), 1e-9);
+        assertEquals(message + " loss", expected.loss, actual.getElevationLoss(), 1e-9);
+        assertEquals(message + " min lat", expected.minLatitude, actual.getMinLatitude(), 0);
+        assertEquals(message + " max lat", expected.maxLatitude, actual.getMaxLatitude(), 0);
+        assertEquals(message + " min lon", expected.minLongitude, actual.getMinLongitude(), 0);
+        assertEquals(message + " max lon", expected.maxLongitude, actual.getMaxLongitude(), 0);
+        assertClose(message + " current pace", expected.currentPace, actual.getCurrentPaceMinPerMile());
+    }
+
+    // TrackStats uses the fast distance kernel; the reference below uses haversine
+    private static void assertClose(String message, double expected, double actual) {
+        assertEquals(message, expected, actual, 1e-6 * Math.abs(expected) + 1e-9);
+    }
+
+    /**
+     * The same figures worked out the plain way from the first {@code count} points.
+     */
+    private static final class Batch {
+        final int count;
+        double distance;
+        long movingTime;
+        long duration;
+        double gain;
+        double loss;
+        double minLatitude, maxLatitude, minLongitude, maxLongitude;
+        double currentPace;
+
+        Batch(TrackView points, int count) {
+            this.count = count;
+            if (count == 0) return;
+
+            minLatitude = maxLatitude = points.getLatitude(0);
+            minLongitude = maxLongitude = points.getLongitude(0);
+            for (int i = 1; i < count; i++) {
+                double d = segment(points, i);
+                distance += d;
+                long elapsed = points.getTimestamp(i) - points.getTimestamp(i - 1);
+                if (elapsed > 0 && d / (elapsed / 1000.0) >= 0.3) movingTime += elapsed;
+                double climb = points.getElevation(i) - points.getElevation(i - 1);
+                if (climb > 0) gain += climb;
+                else loss -= climb;
+                minLatitude = Math.min(minLatitude, points.getLatitude(i));
+                maxLatitude = Math.max(maxLatitude, points.getLatitude(i));
+                minLongitude = Math.min(minLongitude, points.getLongitude(i));
+                maxLongitude = Math.max(maxLongitude, points.getLongitude(i));
+            }
+            duration = count < 2 ? 0 : points.getTimestamp(count - 1) - points.getTimestamp(0);
+
+            // Pace over the last five points, i.e. the four segments between them
+            if (count >= 3) {
+                int first = Math.max(0, count - 5);
+                double recent = 0;
+                for (int i = first + 1; i < count; i++) recent += segment(points, i);
+                long time = points.getTimestamp(count - 1) - points.getTimestamp(first);
+                double miles = recent * TrackStats.METERS_TO_MILES;
+                currentPace = time > 0 && miles > 0 ? time / 60000.0 / miles : 0;
+            }
+        }
+
+        private static double segment(TrackView points, int i) {
+            return Geodesy.haversine(points.getLatitude(i - 1), points.getLongitude(i - 1),
+                    points.getLatitude(i), points.getLongitude(i));
+        }
+    }
+
+    // A walk with climbs and descents, the odd stop, repeated timestamp and jump
+    private static TrackBuffer walk(int points, long seed) {
+        Random random = new Random(seed);
+        TrackBuffer track = new TrackBuffer(Math.max(points, 1));
+        double latitude = 46.5, longitude = 8.0, elevation = 1200;
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < points; i++) {
+            double roll = random.nextDouble();
+            if (roll < 0.1) {
+                // standing still
+            } else if (roll < 0.12) {
+                latitude += 0.05; // a long jump, past the fast path
+            } else {
+                latitude += random.nextGaussian() * 3e-5;
+                longitude += random.nextGaussian() * 4e-5;
+            }
+            elevation += random.nextGaussian() * 2;
+            if (random.nextDouble() > 0.05) timestamp += 1000 + random.nextInt(4000);
+            track.append(latitude, longitude, elevation, timestamp);
+        }
+        return track;
+    }
+}